@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.scriptsecurity.sandbox;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * A whitelist check of one member, resolved once for callers which make it repeatedly, such as step implementations.
+ * While the whitelist is {@linkplain Whitelist#isCacheable(Class) cacheable} for the declaring class,
+ * a repeated check costs only a comparison of {@link Whitelist#generation},
+ * and the whitelist is consulted again only after {@link Whitelist#invalidateCachedVerdicts} for all types or the declaring type,
+ * as when signatures are approved or whitelist extensions are added.
+ * Otherwise each check consults the whitelist as usual.
+ * <p>Instances are thread-safe.
+ */
+public final class ResolvedCheck {
+
+    @FunctionalInterface
+    private interface Check {
+        boolean permits(Whitelist whitelist, Object receiver, Object[] args);
+    }
+
+    /**
+     * Outcome of consulting the whitelist during one generation.
+     */
+    private static final class Verdict {
+
+        final long generation;
+        final boolean cacheable;
+        final boolean permitted;
+
+        Verdict(long generation, boolean cacheable, boolean permitted) {
+            this.generation = generation;
+            this.cacheable = cacheable;
+            this.permitted = permitted;
+        }
+
+    }
+
+    private final @CheckForNull Whitelist whitelist;
+    private final Member member;
+    private final Check check;
+    private volatile @CheckForNull Verdict verdict;
+
+    private ResolvedCheck(@CheckForNull Whitelist whitelist, Member member, Check check) {
+        this.whitelist = whitelist;
+        this.member = member;
+        this.check = check;
+    }
+
+    /**
+     * Resolves {@link Whitelist#permitsMethod}.
+     * @param whitelist a whitelist, or null to use {@link Whitelist#all} as of each check
+     */
+    public static @NonNull ResolvedCheck method(@CheckForNull Whitelist whitelist, @NonNull Method method) {
+        return new ResolvedCheck(whitelist, method, (w, receiver, args) -> w.permitsMethod(method, receiver, args));
+    }
+
+    /**
+     * Resolves {@link Whitelist#permitsConstructor}.
+     * @param whitelist a whitelist, or null to use {@link Whitelist#all} as of each check
+     */
+    public static @NonNull ResolvedCheck constructor(@CheckForNull Whitelist whitelist, @NonNull Constructor<?> constructor) {
+        return new ResolvedCheck(whitelist, constructor, (w, receiver, args) -> w.permitsConstructor(constructor, args));
+    }
+
+    /**
+     * Resolves {@link Whitelist#permitsStaticMethod}.
+     * @param whitelist a whitelist, or null to use {@link Whitelist#all} as of each check
+     */
+    public static @NonNull ResolvedCheck staticMethod(@CheckForNull Whitelist whitelist, @NonNull Method method) {
+        return new ResolvedCheck(whitelist, method, (w, receiver, args) -> w.permitsStaticMethod(method, args));
+    }
+
+    /**
+     * Resolves {@link Whitelist#permitsFieldGet}.
+     * @param whitelist a whitelist, or null to use {@link Whitelist#all} as of each check
+     */
+    public static @NonNull ResolvedCheck fieldGet(@CheckForNull Whitelist whitelist, @NonNull Field field) {
+        return new ResolvedCheck(whitelist, field, (w, receiver, args) -> w.permitsFieldGet(field, receiver));
+    }
+
+    /**
+     * Resolves {@link Whitelist#permitsFieldSet}; pass the value as the single argument.
+     * @param whitelist a whitelist, or null to use {@link Whitelist#all} as of each check
+     */
+    public static @NonNull ResolvedCheck fieldSet(@CheckForNull Whitelist whitelist, @NonNull Field field) {
+        return new ResolvedCheck(whitelist, field, (w, receiver, args) -> w.permitsFieldSet(field, receiver, value(args)));
+    }
+
+    /**
+     * Resolves {@link Whitelist#permitsStaticFieldGet}.
+     * @param whitelist a whitelist, or null to use {@link Whitelist#all} as of each check
+     */
+    public static @NonNull ResolvedCheck staticFieldGet(@CheckForNull Whitelist whitelist, @NonNull Field field) {
+        return new ResolvedCheck(whitelist, field, (w, receiver, args) -> w.permitsStaticFieldGet(field));
+    }
+
+    /**
+     * Resolves {@link Whitelist#permitsStaticFieldSet}; pass the value as the single argument.
+     * @param whitelist a whitelist, or null to use {@link Whitelist#all} as of each check
+     */
+    public static @NonNull ResolvedCheck staticFieldSet(@CheckForNull Whitelist whitelist, @NonNull Field field) {
+        return new ResolvedCheck(whitelist, field, (w, receiver, args) -> w.permitsStaticFieldSet(field, value(args)));
+    }
+
+    private static Object value(Object[] args) {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("expected the assigned value as the single argument but got " + args.length + " arguments");
+        }
+        return args[0];
+    }
+
+    public @NonNull Member getMember() {
+        return member;
+    }
+
+    /**
+     * Checks whether the whitelist permits the member.
+     * @param receiver the receiver of an instance method or field; ignored for other members
+     * @param args the arguments to a method or constructor, or the value assigned to a field; ignored for field reads
+     */
+    public boolean permits(@CheckForNull Object receiver, @NonNull Object... args) {
+        // Read the generation first, as in ProxyWhitelist: changes are made before it is incremented.
+        long g = Whitelist.generation();
+        Verdict v = verdict;
+        if (v != null && v.generation != g && !Whitelist.changedSince(member.getDeclaringClass(), v.generation)) {
+            verdict = v = new Verdict(g, v.cacheable, v.permitted); // only verdicts for other types were discarded
+        }
+        if (v != null && v.generation == g) {
+            if (v.cacheable) {
+                return v.permitted;
+            }
+            return check.permits(whitelist(), receiver, args);
+        }
+        Whitelist w = whitelist();
+        boolean permitted = check.permits(w, receiver, args);
+        boolean cacheable = w.isCacheable(member.getDeclaringClass());
+        verdict = new Verdict(g, cacheable, permitted);
+        return permitted;
+    }
+
+    private Whitelist whitelist() {
+        return whitelist != null ? whitelist : Whitelist.all();
+    }
+
+    @Override public String toString() {
+        return "ResolvedCheck[" + member + "]";
+    }
+
+}
@@ -27,18 +27,29 @@ package org.jenkinsci.plugins.scriptsecurity.sandbox;
 import hudson.Extension;
 import hudson.ExtensionList;
 import hudson.ExtensionPoint;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jenkins.ExtensionListListener;
 import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.groovy.GroovySandbox;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.ProxyWhitelist;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * Determines which methods and similar members which scripts may call.
@@ -71,30 +82,213 @@ public abstract class Whitelist implements ExtensionPoint {
 
     public abstract boolean permitsStaticFieldSet(@NonNull Field field, @CheckForNull Object value);
 
+    /**
+     * Checks whether this whitelist could permit any member declared by a given class.
+     * If not, callers such as {@link ProxyWhitelist} may skip this whitelist for all members of that class.
+     * Whitelists covering only certain packages or types should override this;
+     * the answer may be cached until {@link #invalidateCachedVerdicts} is next called.
+     * @param declaringClass the {@linkplain java.lang.reflect.Member#getDeclaringClass declaring class} of a member
+     * @return true by default; false only if every {@code permits*} method would reject all members of the class
+     */
+    public boolean mayPermit(@NonNull Class<?> declaringClass) {
+        return true;
+    }
+
+    /**
+     * Whether the verdicts of this whitelist depend only on the member being checked,
+     * and not on the receiver, arguments, assigned value, or {@linkplain Jenkins#getAuthentication2 current user}.
+     * If so, callers such as {@link ProxyWhitelist} may cache them until {@link #invalidateCachedVerdicts} is next called,
+     * which such a whitelist must do whenever it starts to permit or reject a member differently.
+     * @return false by default
+     */
+    public boolean isCacheable() {
+        return false;
+    }
+
+    /**
+     * Like {@link #isCacheable()} but only for verdicts on members of one class.
+     * @param declaringClass the {@linkplain java.lang.reflect.Member#getDeclaringClass declaring class} of a member
+     * @return by default, true if this whitelist is cacheable or {@linkplain #mayPermit cannot permit} members of the class at all
+     * @see ResolvedCheck
+     */
+    public boolean isCacheable(@NonNull Class<?> declaringClass) {
+        return isCacheable() || !mayPermit(declaringClass);
+    }
+
+    /**
+     * Prepares to check members of a class, for example by filling caches, so that the first checks in the sandbox are fast.
+     * @param declaringClass the {@linkplain java.lang.reflect.Member#getDeclaringClass declaring class} of members to be checked
+     */
+    public void preload(@NonNull Class<?> declaringClass) {}
+
+    /**
+     * Discards all verdicts cached on behalf of {@linkplain #isCacheable cacheable} whitelists.
+     * This is meant for changes which may affect any class, such as replacing the delegates of a {@link ProxyWhitelist},
+     * whose containing proxies cannot tell which of their routes and verdicts depended on it.
+     * Such changes are rare (loading approvals wholesale or changing the set of whitelist extensions),
+     * and verdicts are then merely recombined from delegates which keep their own caches, such as {@link EnumeratingWhitelist}.
+     */
+    public static void invalidateCachedVerdicts() {
+        synchronized (changedAt) {
+            long g = generation.get() + 1;
+            everythingChangedAt = g;
+            generation.set(g);
+        }
+    }
+
+    /**
+     * Discards verdicts cached on behalf of {@linkplain #isCacheable cacheable} whitelists for members of certain types only,
+     * as when a single signature is approved or removed.
+     * Verdicts for other types remain valid; callers revalidate them through {@link #changedSince(Class, long)}.
+     * @param declaringTypes names of declaring types in the form of {@link EnumeratingWhitelist#getName(Class)}
+     */
+    @Restricted(NoExternalUse.class) // EnumeratingWhitelist, StaticWhitelist
+    public static void invalidateCachedVerdicts(@NonNull Collection<String> declaringTypes) {
+        synchronized (changedAt) {
+            long g = generation.get() + 1;
+            for (String type : declaringTypes) {
+                changedAt.put(type, g);
+            }
+            generation.set(g);
+        }
+    }
+
+    /**
+     * Incremented by each call to {@link #invalidateCachedVerdicts}, after it has recorded what changed.
+     */
+    @Restricted(NoExternalUse.class) // ProxyWhitelist, ResolvedCheck
+    public static long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Checks whether all cached verdicts have been discarded since some {@link #generation}.
+     */
+    @Restricted(NoExternalUse.class) // ProxyWhitelist
+    public static boolean changedSince(long generation) {
+        return everythingChangedAt > generation;
+    }
+
+    /**
+     * Checks whether cached verdicts for members of a class have been discarded since some {@link #generation}.
+     */
+    @Restricted(NoExternalUse.class) // ProxyWhitelist, ResolvedCheck
+    public static boolean changedSince(@NonNull Class<?> declaringClass, long generation) {
+        Long changed = changedAt.get(EnumeratingWhitelist.getName(declaringClass));
+        return changed != null && changed > generation || everythingChangedAt > generation;
+    }
+
+    private static final AtomicLong generation = new AtomicLong();
+
+    private static volatile long everythingChangedAt;
+
+    /**
+     * Declaring type name to the last {@link #generation} in which verdicts for its members were discarded.
+     * Never pruned, as it only holds types mentioned by signatures approved or removed since startup.
+     */
+    private static final ConcurrentMap<String, Long> changedAt = new ConcurrentHashMap<>();
+
     /**
      * Checks for all whitelists registered as {@link Extension}s and aggregates them.
      * @return an aggregated default list
      */
-    public static synchronized @NonNull Whitelist all() {
+    public static @NonNull Whitelist all() {
         Jenkins j = Jenkins.getInstanceOrNull();
         if (j == null) {
             LOGGER.log(Level.WARNING, "No Jenkins.instance", new Throwable("here"));
             return new ProxyWhitelist();
         }
-        Whitelist all = allByJenkins.get(j);
-        if (all == null) {
-            ExtensionList<Whitelist> allWhitelists = j.getExtensionList(Whitelist.class);
-            if (allWhitelists.isEmpty()) {
-                LOGGER.log(Level.WARNING, "No Whitelist instances registered", new Throwable("here"));
-                return new ProxyWhitelist();
+        Aggregated aggregated = Whitelist.aggregated;
+        if (aggregated != null && aggregated.whitelist != null && aggregated.jenkins.get() == j) {
+            return aggregated.whitelist;
+        }
+        return aggregate(j);
+    }
+
+    private static synchronized @NonNull Whitelist aggregate(@NonNull Jenkins j) {
+        Aggregated previous = aggregated;
+        boolean listening = previous != null && previous.jenkins.get() == j;
+        if (listening && previous.whitelist != null) {
+            return previous.whitelist;
+        }
+        ExtensionList<Whitelist> allWhitelists = j.getExtensionList(Whitelist.class);
+        if (!listening) {
+            allWhitelists.addListener(new ExtensionListListener() {
+                @Override public void onChange() {
+                    invalidateAggregated(j);
+                }
+            });
+        }
+        if (allWhitelists.isEmpty()) {
+            LOGGER.log(Level.WARNING, "No Whitelist instances registered", new Throwable("here"));
+            Whitelist none = new ProxyWhitelist();
+            aggregated = new Aggregated(j, none); // until the listener sees extensions added
+            return none;
+        } else {
+            LOGGER.fine(() -> "Loading whitelists: " + allWhitelists);
+        }
+        Whitelist all = new ProxyWhitelist(MERGE_ENUMERATING_WHITELISTS ? mergeEnumerating(allWhitelists) : allWhitelists);
+        aggregated = new Aggregated(j, all);
+        return all;
+    }
+
+    private static synchronized void invalidateAggregated(@NonNull Jenkins j) {
+        Aggregated previous = aggregated;
+        if (previous != null && previous.jenkins.get() == j) {
+            LOGGER.fine("Whitelist extensions changed; aggregating them again on next use");
+            aggregated = new Aggregated(j, null);
+            invalidateCachedVerdicts(); // so that ResolvedCheck picks up the new aggregate
+        }
+    }
+
+    /**
+     * Result of {@link #all}, published without locking so that entering the sandbox does not contend on a global lock.
+     * Rebuilt when the {@link Whitelist} extension list changes, such as when a plugin is installed dynamically.
+     */
+    private static volatile @CheckForNull Aggregated aggregated;
+
+    private static final class Aggregated {
+
+        final WeakReference<Jenkins> jenkins;
+        /** Null if not yet computed since the last change to the extension list, which is already being listened to. */
+        final @CheckForNull Whitelist whitelist;
+
+        Aggregated(Jenkins jenkins, @CheckForNull Whitelist whitelist) {
+            this.jenkins = new WeakReference<>(jenkins);
+            this.whitelist = whitelist;
+        }
+
+    }
+
+    /**
+     * Whether {@link #all} combines the signatures of every {@link EnumeratingWhitelist} extension into one index,
+     * so that a member is looked up once rather than once per plugin.
+     * Other whitelists, such as those for approved signatures and annotated members, are still consulted separately.
+     * Signature lists are copied when the aggregated whitelist is created, so this is off by default:
+     * an {@link EnumeratingWhitelist} extension whose lists change afterwards would not be seen to change until the next aggregation.
+     * Takes effect the next time the aggregated whitelist is created.
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static /* non-final */ boolean MERGE_ENUMERATING_WHITELISTS =
+            SystemProperties.getBoolean(Whitelist.class.getName() + ".MERGE_ENUMERATING_WHITELISTS", false);
+
+    private static List<Whitelist> mergeEnumerating(List<Whitelist> whitelists) {
+        List<EnumeratingWhitelist> enumerating = new ArrayList<>();
+        List<Whitelist> others = new ArrayList<>();
+        for (Whitelist w : whitelists) {
+            if (w instanceof EnumeratingWhitelist) {
+                enumerating.add((EnumeratingWhitelist) w);
             } else {
-                LOGGER.fine(() -> "Loading whitelists: " + allWhitelists);
+                others.add(w);
             }
-            all = new ProxyWhitelist(allWhitelists);
-            allByJenkins.put(j, all);
         }
-        return all;
+        if (enumerating.size() < 2) {
+            return whitelists;
+        }
+        List<Whitelist> merged = new ArrayList<>(others.size() + 1);
+        merged.add(EnumeratingWhitelist.merge(enumerating));
+        merged.addAll(others);
+        return merged;
     }
-    private static final Map<Jenkins,Whitelist> allByJenkins = new WeakHashMap<>();
 
 }
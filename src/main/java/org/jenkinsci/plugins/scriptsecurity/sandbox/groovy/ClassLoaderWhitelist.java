@@ -24,6 +24,14 @@ public final class ClassLoaderWhitelist extends Whitelist {
         return declaringClass.getClassLoader() == scriptLoader;
     }
 
+    @Override public boolean mayPermit(@NonNull Class<?> declaringClass) {
+        return permits(declaringClass);
+    }
+
+    @Override public boolean isCacheable() {
+        return true;
+    }
+
     @Override public boolean permitsMethod(@NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
         return permits(method.getDeclaringClass()) && !isIllegalSyntheticMethod(method);
     }
@@ -29,13 +29,19 @@ import groovy.lang.GString;
 import groovy.lang.GroovyInterceptable;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Predicate;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -50,6 +56,205 @@ import org.codehaus.groovy.runtime.typehandling.DefaultTypeTransformation;
  */
 class GroovyCallSiteSelector {
 
+    /**
+     * Index of the declared members of each class, since {@link Class#getDeclaredMethods} and similar copy every member on each call.
+     */
+    private static final ClassValue<DeclaredMembers> DECLARED_MEMBERS = new ClassValue<DeclaredMembers>() {
+        @Override protected DeclaredMembers computeValue(Class<?> type) {
+            return new DeclaredMembers(type);
+        }
+    };
+
+    private static final ClassValue<Supertypes> SUPERTYPES = new ClassValue<Supertypes>() {
+        @Override protected Supertypes computeValue(Class<?> type) {
+            return new Supertypes(type);
+        }
+    };
+
+    /**
+     * A class with its supertypes, most general first.
+     */
+    private static final class Supertypes {
+
+        /** Must not be modified. */
+        final Class<?>[] types;
+        final boolean interceptable;
+
+        Supertypes(Class<?> type) {
+            Set<Class<?>> types = new LinkedHashSet<>();
+            visitTypes(types, type);
+            this.types = types.toArray(new Class<?>[0]);
+            interceptable = types.contains(GroovyInterceptable.class);
+        }
+
+    }
+
+    /**
+     * For each receiver class, GDK methods {@linkplain Overloads#forSelf narrowed} to those which might accept it as {@code self}.
+     * Keys are only ever nonempty overloads of GDK classes, so each map is bounded by the number of GDK method names.
+     */
+    private static final ClassValue<ConcurrentMap<Overloads, Overloads>> GDK_METHODS = new ClassValue<ConcurrentMap<Overloads, Overloads>>() {
+        @Override protected ConcurrentMap<Overloads, Overloads> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final class DeclaredMembers {
+
+        final Map<String, Overloads> methods;
+        final Overloads constructors;
+        /** A nonvarargs constructor with no parameters, if any. */
+        final @CheckForNull Constructor<?> noArgConstructor;
+        final Map<String, Field> fields;
+
+        DeclaredMembers(Class<?> type) {
+            Map<String, List<Executable>> methodsByName = new LinkedHashMap<>();
+            for (Method m : type.getDeclaredMethods()) {
+                methodsByName.computeIfAbsent(m.getName(), k -> new ArrayList<>()).add(m);
+            }
+            Map<String, Overloads> methods = new HashMap<>();
+            methodsByName.forEach((name, overloads) -> methods.put(name, new Overloads(overloads, true)));
+            this.methods = methods;
+            Constructor<?>[] declaredConstructors = type.getDeclaredConstructors();
+            constructors = new Overloads(List.of(declaredConstructors), false);
+            Constructor<?> noArg = null;
+            for (Constructor<?> c : declaredConstructors) {
+                if (c.getParameterCount() == 0 && !c.isVarArgs()) {
+                    noArg = c;
+                    break;
+                }
+            }
+            noArgConstructor = noArg;
+            Map<String, Field> fields = new HashMap<>();
+            for (Field f : type.getDeclaredFields()) {
+                fields.putIfAbsent(f.getName(), f);
+            }
+            this.fields = fields;
+        }
+
+        @NonNull Overloads methods(@NonNull String name) {
+            Overloads overloads = methods.get(name);
+            return overloads != null ? overloads : Overloads.NONE;
+        }
+
+    }
+
+    /**
+     * Methods of one name, or constructors, grouped by the number of arguments they might accept.
+     */
+    private static final class Overloads {
+
+        private static final Candidate[] NO_CANDIDATES = new Candidate[0];
+
+        static final Overloads NONE = new Overloads(List.of(), false);
+
+        /** All overloads, in declaration order. */
+        final List<Executable> all;
+        /** A candidate for each of {@link #all}, in the same order. */
+        private final List<Candidate> candidates;
+        /** At index <em>n</em>, candidates which might accept <em>n</em> arguments, in declaration order. */
+        private final Candidate[][] byArity;
+        /** Candidates which might accept more arguments than any index of {@link #byArity}. */
+        private final Candidate[] spreading;
+
+        Overloads(List<Executable> all, boolean arrayTailsSpread) {
+            this(candidates(all, arrayTailsSpread));
+        }
+
+        private Overloads(List<Candidate> candidates) {
+            this.candidates = candidates;
+            List<Executable> all = new ArrayList<>(candidates.size());
+            int maxParameters = -1;
+            for (Candidate c : candidates) {
+                all.add(c.executable);
+                maxParameters = Math.max(maxParameters, c.parameterTypes.length);
+            }
+            this.all = Collections.unmodifiableList(all);
+            byArity = new Candidate[maxParameters + 1][];
+            for (int n = 0; n < byArity.length; n++) {
+                List<Candidate> accepting = new ArrayList<>();
+                for (Candidate c : candidates) {
+                    if (c.mightAccept(n)) {
+                        accepting.add(c);
+                    }
+                }
+                byArity[n] = accepting.isEmpty() ? NO_CANDIDATES : accepting.toArray(NO_CANDIDATES);
+            }
+            List<Candidate> unbounded = new ArrayList<>();
+            for (Candidate c : candidates) {
+                if (c.varArgs || c.arrayTail) {
+                    unbounded.add(c);
+                }
+            }
+            spreading = unbounded.isEmpty() ? NO_CANDIDATES : unbounded.toArray(NO_CANDIDATES);
+        }
+
+        private static List<Candidate> candidates(List<Executable> all, boolean arrayTailsSpread) {
+            List<Candidate> candidates = new ArrayList<>(all.size());
+            for (Executable e : all) {
+                candidates.add(new Candidate(e, arrayTailsSpread));
+            }
+            return candidates;
+        }
+
+        @NonNull Candidate[] forArity(int arguments) {
+            return arguments < byArity.length ? byArity[arguments] : spreading;
+        }
+
+        /**
+         * Narrows methods to those whose first parameter might accept the given class.
+         * The narrowed overloads share the candidates of these, so parameter types are not copied again.
+         */
+        @NonNull Overloads forSelf(@NonNull Class<?> self) {
+            List<Candidate> narrowed = new ArrayList<>();
+            for (Candidate c : candidates) {
+                Class<?>[] parameterTypes = c.parameterTypes;
+                if (parameterTypes.length == 0) {
+                    continue;
+                }
+                Class<?> selfType = parameterTypes[0];
+                // As in matches; primitive parameters may accept other wrapper types, depending on the value.
+                if (selfType.isPrimitive() || (c.varArgs && parameterTypes.length == 1)
+                        || selfType.isAssignableFrom(self) || (selfType == String.class && GString.class.isAssignableFrom(self))) {
+                    narrowed.add(c);
+                }
+            }
+            return narrowed.size() == candidates.size() ? this : new Overloads(narrowed);
+        }
+
+    }
+
+    /**
+     * A method or constructor with its parameter types, which must not be modified.
+     */
+    private static final class Candidate {
+
+        final Executable executable;
+        final Class<?>[] parameterTypes;
+        /** Whether declared as varargs. */
+        final boolean varArgs;
+        /** Whether it might be called with spread arguments though not declared as varargs; cf. {@link #isVarArgsMethod}. */
+        final boolean arrayTail;
+
+        Candidate(Executable executable, boolean arrayTailsSpread) {
+            this.executable = executable;
+            parameterTypes = executable.getParameterTypes();
+            varArgs = executable.isVarArgs();
+            arrayTail = arrayTailsSpread && !varArgs && parameterTypes.length >= 2 && parameterTypes[parameterTypes.length - 1].isArray();
+        }
+
+        boolean mightAccept(int arguments) {
+            if (varArgs) {
+                return arguments >= parameterTypes.length - 1;
+            } else if (arrayTail) {
+                return arguments >= parameterTypes.length;
+            } else {
+                return arguments == parameterTypes.length;
+            }
+        }
+
+    }
+
     private static boolean matches(@NonNull Class<?>[] parameterTypes, @NonNull Object[] parameters, boolean varargs) {
         if (varargs) {
             parameters = parametersForVarargs(parameterTypes, parameters);
@@ -150,11 +355,11 @@ class GroovyCallSiteSelector {
      * @param args a set of actual arguments
      */
     public static @CheckForNull Method method(@NonNull Object receiver, @NonNull String method, @NonNull Object[] args) {
-        Set<Class<?>> types = types(receiver);
-        if (types.contains(GroovyInterceptable.class) && !"invokeMethod".equals(method)) {
+        Supertypes types = types(receiver);
+        if (types.interceptable && !"invokeMethod".equals(method)) {
             return method(receiver, "invokeMethod", new Object[]{ method, args });
         }
-        for (Class<?> c : types) {
+        for (Class<?> c : types.types) {
             Method candidate = findMatchingMethod(c, method, args);
             if (candidate != null) {
                 return candidate;
@@ -170,28 +375,24 @@ class GroovyCallSiteSelector {
     }
 
     public static @CheckForNull Constructor<?> constructor(@NonNull Class<?> receiver, @NonNull Object[] args) {
-        Constructor<?>[] constructors = receiver.getDeclaredConstructors();
-        Constructor<?> candidate = null;
-        for (Constructor<?> c : constructors) {
-            if (matches(c.getParameterTypes(), args, c.isVarArgs())) {
-                if (candidate == null || isMoreSpecific(c, c.getParameterTypes(), c.isVarArgs(), candidate, candidate.getParameterTypes(), candidate.isVarArgs())) {
+        DeclaredMembers members = DECLARED_MEMBERS.get(receiver);
+        Candidate candidate = null;
+        for (Candidate c : members.constructors.forArity(args.length)) {
+            if (matches(c.parameterTypes, args, c.varArgs)) {
+                if (candidate == null || isMoreSpecific(c.executable, c.parameterTypes, c.varArgs, candidate.executable, candidate.parameterTypes, candidate.varArgs)) {
                     candidate = c;
                 }
             }
         }
         if (candidate != null) {
-            return candidate;
+            return (Constructor<?>) candidate.executable;
         }
 
         // Only check for the magic Map constructor if we haven't already found a real constructor.
         // Also note that this logic is derived from how Groovy itself decides to use the magic Map constructor, at
         // MetaClassImpl#invokeConstructor(Class, Object[]).
         if (args.length == 1 && args[0] instanceof Map) {
-            for (Constructor<?> c : constructors) {
-                if (c.getParameterTypes().length == 0 && !c.isVarArgs()) {
-                    return c;
-                }
-            }
+            return members.noArgConstructor;
         }
 
         return null;
@@ -205,17 +406,13 @@ class GroovyCallSiteSelector {
      * Like {@link #method}, but returns all methods with the given name that match the given predicate.
      */
     public static List<Method> methods(@NonNull Object receiver, @NonNull String method, Predicate<Method> filter) {
-        Set<Class<?>> types = types(receiver);
-        if (types.contains(GroovyInterceptable.class) && !"invokeMethod".equals(method)) {
+        Supertypes types = types(receiver);
+        if (types.interceptable && !"invokeMethod".equals(method)) {
             return methods(receiver, "invokeMethod", m -> true);
         }
         List<Method> candidates = new ArrayList<>();
-        for (Class<?> c : types) {
-            for (Method candidate : c.getDeclaredMethods()) {
-                if (candidate.getName().equals(method) && filter.test(candidate)) {
-                    candidates.add(candidate);
-                }
-            }
+        for (Class<?> c : types.types) {
+            addMethods(candidates, c, method, filter);
         }
         if (receiver instanceof GString) { // cf. GString.invokeMethod
             candidates.addAll(methods(String.class, method, filter));
@@ -223,53 +420,102 @@ class GroovyCallSiteSelector {
         return candidates;
     }
 
+    /**
+     * Like {@link #staticMethod} for a GDK class such as {@link org.codehaus.groovy.runtime.DefaultGroovyMethods},
+     * whose methods take the receiver of the extension method as their first parameter.
+     * @param selfArgs the receiver followed by the actual arguments
+     */
+    public static @CheckForNull Method gdkMethod(@NonNull Class<?> gdkClass, @NonNull String method, @NonNull Object[] selfArgs) {
+        Overloads overloads = DECLARED_MEMBERS.get(gdkClass).methods(method);
+        if (selfArgs.length > 0 && selfArgs[0] != null) {
+            overloads = forSelf(overloads, selfArgs[0].getClass());
+        }
+        return findMatchingMethod(overloads, selfArgs);
+    }
+
+    /**
+     * Checks whether {@link #gdkMethod} might find a method for a receiver and a number of other arguments, whatever their types.
+     */
+    static boolean mightHaveGdkMethod(@NonNull Class<?> gdkClass, @NonNull Class<?> self, @NonNull String method, int arguments) {
+        return forSelf(DECLARED_MEMBERS.get(gdkClass).methods(method), self).forArity(arguments + 1).length > 0;
+    }
+
+    private static @NonNull Overloads forSelf(@NonNull Overloads overloads, @NonNull Class<?> self) {
+        if (overloads == Overloads.NONE) {
+            return overloads;
+        }
+        ConcurrentMap<Overloads, Overloads> narrowed = GDK_METHODS.get(self);
+        Overloads forSelf = narrowed.get(overloads);
+        if (forSelf == null) {
+            forSelf = overloads.forSelf(self);
+            narrowed.putIfAbsent(overloads, forSelf);
+        }
+        return forSelf;
+    }
+
+    /**
+     * Names of the methods declared by a class.
+     */
+    static @NonNull Set<String> methodNames(@NonNull Class<?> type) {
+        return Collections.unmodifiableSet(DECLARED_MEMBERS.get(type).methods.keySet());
+    }
+
     /**
      * Like {@link #staticMethod}, but returns all methods with the given name that match the given predicate.
      */
     public static List<Method> staticMethods(@NonNull Class<?> receiver, @NonNull String method, Predicate<Method> filter) {
         List<Method> candidates = new ArrayList<>();
-        for (Method candidate : receiver.getDeclaredMethods()) {
-            if (candidate.getName().equals(method) && filter.test(candidate)) {
+        addMethods(candidates, receiver, method, filter);
+        return candidates;
+    }
+
+    private static void addMethods(@NonNull List<Method> candidates, @NonNull Class<?> receiver, @NonNull String method, Predicate<Method> filter) {
+        for (Executable e : DECLARED_MEMBERS.get(receiver).methods(method).all) {
+            Method candidate = (Method) e;
+            if (filter.test(candidate)) {
                 candidates.add(candidate);
             }
         }
-        return candidates;
     }
 
     private static Method findMatchingMethod(@NonNull Class<?> receiver, @NonNull String method, @NonNull Object[] args) {
-        Method candidate = null;
-
-        for (Method m : receiver.getDeclaredMethods()) {
-            if (m != null) {
-                boolean isVarArgs = isVarArgsMethod(m, args);
-                if (m.getName().equals(method) && (matches(m.getParameterTypes(), args, isVarArgs))) {
-                    if (candidate == null || isMoreSpecific(m, m.getParameterTypes(), isVarArgs, candidate,
-                            candidate.getParameterTypes(), isVarArgsMethod(candidate, args))) {
-                        candidate = m;
-                    }
+        return findMatchingMethod(DECLARED_MEMBERS.get(receiver).methods(method), args);
+    }
+
+    private static Method findMatchingMethod(@NonNull Overloads overloads, @NonNull Object[] args) {
+        Candidate candidate = null;
+        boolean candidateVarArgs = false;
+        for (Candidate m : overloads.forArity(args.length)) {
+            boolean isVarArgs = isVarArgsMethod(m, args);
+            if (matches(m.parameterTypes, args, isVarArgs)) {
+                if (candidate == null || isMoreSpecific(m.executable, m.parameterTypes, isVarArgs, candidate.executable,
+                        candidate.parameterTypes, candidateVarArgs)) {
+                    candidate = m;
+                    candidateVarArgs = isVarArgs;
                 }
             }
         }
-        return candidate;
+        return candidate != null ? (Method) candidate.executable : null;
     }
 
     /**
      * Emulates, with some tweaks, {@link org.codehaus.groovy.reflection.ParameterTypes#isVargsMethod(Object[])}
      */
-    private static boolean isVarArgsMethod(@NonNull Method m, @NonNull Object[] args) {
-        if (m.isVarArgs()) {
+    private static boolean isVarArgsMethod(@NonNull Candidate m, @NonNull Object[] args) {
+        if (m.varArgs) {
             return true;
         }
-        Class<?>[] paramTypes = m.getParameterTypes();
+        Class<?>[] paramTypes = m.parameterTypes;
 
-        // If there's 0 or only 1 parameter type, we don't want to do varargs magic. Normal callsite selector logic works then.
-        if (paramTypes.length < 2) {
+        // If there's 0 or only 1 parameter type, or the last parameter type is not an array, we don't want to do varargs magic.
+        // Normal callsite selector logic works then.
+        if (!m.arrayTail) {
             return false;
         }
 
         int lastIndex = paramTypes.length - 1;
-        // If there are more arguments than parameter types and the last parameter type is an array, we may be vargy.
-        if (paramTypes[lastIndex].isArray() && args.length > paramTypes.length) {
+        // If there are more arguments than parameter types, we may be vargy.
+        if (args.length > paramTypes.length) {
             Class<?> lastClass = paramTypes[lastIndex].getComponentType();
             // Check each possible vararg to see if it can be cast to the array's component type or is null. If not, we're not vargy.
             for (int i = lastIndex; i < args.length; i++) {
@@ -286,29 +532,21 @@ class GroovyCallSiteSelector {
     }
 
     public static @CheckForNull Field field(@NonNull Object receiver, @NonNull String field) {
-        for (Class<?> c : types(receiver)) {
-            for (Field f : c.getDeclaredFields()) {
-                if (f.getName().equals(field)) {
-                    return f;
-                }
+        for (Class<?> c : types(receiver).types) {
+            Field f = DECLARED_MEMBERS.get(c).fields.get(field);
+            if (f != null) {
+                return f;
             }
         }
         return null;
     }
 
     public static @CheckForNull Field staticField(@NonNull Class<?> receiver, @NonNull String field) {
-        for (Field f : receiver.getDeclaredFields()) {
-            if (f.getName().equals(field)) {
-                return f;
-            }
-        }
-        return null;
+        return DECLARED_MEMBERS.get(receiver).fields.get(field);
     }
 
-    private static Set<Class<?>> types(@NonNull Object o) {
-        Set<Class<?>> types = new LinkedHashSet<>();
-        visitTypes(types, o.getClass());
-        return types;
+    private static @NonNull Supertypes types(@NonNull Object o) {
+        return SUPERTYPES.get(o.getClass());
     }
     private static void visitTypes(@NonNull Set<Class<?>> types, @NonNull Class<?> c) {
         Class<?> s = c.getSuperclass();
@@ -0,0 +1,251 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.scriptsecurity.sandbox.groovy;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers which method {@link GroovyCallSiteSelector#method} selects for calls on a given receiver class,
+ * so that a call site run repeatedly with the same types resolves it once.
+ * Calls are keyed by method name and argument classes, a null argument matching only a null argument.
+ * Each receiver class keeps a few entries in a {@link ClassValue}, replaced in turn, much like a polymorphic inline cache.
+ * Calls are cached only if every argument class is visible to the receiver class, so that no class loader is pinned by another.
+ * Whitelist verdicts are not kept here: the whitelist of a sandbox is typically built for each script run,
+ * and {@link org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.ProxyWhitelist} already caches verdicts of its long-lived delegates.
+ */
+final class MethodCallCache {
+
+    /**
+     * Number of entries per receiver class.
+     */
+    static final int SIZE = 8;
+
+    private static final ClassValue<MethodCallCache> CACHES = new ClassValue<MethodCallCache>() {
+        @Override protected MethodCallCache computeValue(Class<?> type) {
+            return new MethodCallCache();
+        }
+    };
+
+    private static final ClassValue<Fallbacks> FALLBACKS = new ClassValue<Fallbacks>() {
+        @Override protected Fallbacks computeValue(Class<?> type) {
+            return new Fallbacks(type);
+        }
+    };
+
+    /** Read without locking: entries are immutable, so a stale read only means a miss. */
+    private final Entry[] entries = new Entry[SIZE];
+    private int next;
+
+    private MethodCallCache() {}
+
+    /**
+     * Selects the method to be called, reusing an earlier selection where possible.
+     * @return an entry whose {@link Entry#method} is null if there is no such method
+     */
+    static @NonNull Entry method(@NonNull Object receiver, @NonNull String method, @NonNull Object[] args) {
+        Class<?> type = receiver.getClass();
+        if (!cacheable(type, args)) {
+            return new Entry(method, null, GroovyCallSiteSelector.method(receiver, method, args));
+        }
+        MethodCallCache cache = CACHES.get(type);
+        for (Entry e : cache.entries) {
+            if (e != null && e.matches(method, args)) {
+                return e;
+            }
+        }
+        Entry e = new Entry(method, types(args), GroovyCallSiteSelector.method(receiver, method, args));
+        cache.add(e);
+        return e;
+    }
+
+    /**
+     * Looks up how to proceed with a call on a receiver class when {@link #method} finds no method.
+     */
+    static @NonNull Fallbacks fallbacks(@NonNull Class<?> type) {
+        return FALLBACKS.get(type);
+    }
+
+    private synchronized void add(Entry e) {
+        entries[next] = e;
+        next = (next + 1) % SIZE;
+    }
+
+    private static boolean cacheable(Class<?> type, Object[] args) {
+        ClassLoader loader = type.getClassLoader();
+        for (Object arg : args) {
+            if (arg instanceof Long) {
+                return false; // GroovyCallSiteSelector.isInstancePrimitive narrows to int depending on the value
+            }
+            if (arg != null && !visible(arg.getClass().getClassLoader(), loader)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether classes defined by one loader may be held by classes defined by another without pinning it.
+     */
+    static boolean visible(@CheckForNull ClassLoader argLoader, @CheckForNull ClassLoader loader) {
+        if (argLoader == null) {
+            return true;
+        }
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            if (l == argLoader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Class<?>[] types(Object[] args) {
+        Class<?>[] types = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            types[i] = arg == null ? null : arg.getClass();
+        }
+        return types;
+    }
+
+    static final class Entry {
+
+        private final String name;
+        /** Classes of the arguments, with null for null arguments; or null if not cached. */
+        private final @CheckForNull Class<?>[] types;
+        final @CheckForNull Method method;
+
+        Entry(String name, @CheckForNull Class<?>[] types, @CheckForNull Method method) {
+            this.name = name;
+            this.types = types;
+            this.method = method;
+        }
+
+        private boolean matches(String name, Object[] args) {
+            if (types.length != args.length || !this.name.equals(name)) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                Object arg = args[i];
+                if (types[i] != (arg == null ? null : arg.getClass())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Which fallbacks of {@link SandboxInterceptor#onMethodCall} might apply to calls on a receiver class with no matching method,
+     * so that repeated dynamic calls need not probe GDK classes or look for {@code invokeMethod} each time.
+     * Fallbacks depending on the receiver or argument values, such as closures in maps or script bindings, are still checked on each call.
+     */
+    static final class Fallbacks {
+
+        /**
+         * Arities are remembered as bits, so higher ones are not cached.
+         */
+        private static final int MAX_ARITY = 31;
+
+        private final Class<?> type;
+        /** Whether the class has a public {@code invokeMethod(String, Object)}. */
+        final boolean invokeMethod;
+        /** Keyed only by GDK method names, so bounded. */
+        private final ConcurrentMap<String, Arities> gdkMethods = new ConcurrentHashMap<>();
+
+        Fallbacks(Class<?> type) {
+            this.type = type;
+            boolean invokeMethod;
+            try {
+                type.getMethod("invokeMethod", String.class, Object.class);
+                invokeMethod = true;
+            } catch (NoSuchMethodException x) {
+                invokeMethod = false;
+            }
+            this.invokeMethod = invokeMethod;
+        }
+
+        /**
+         * Checks whether some GDK method might accept a receiver of this class and the given number of arguments.
+         */
+        boolean mightHaveGdkMethod(@NonNull String method, int arguments) {
+            if (!GdkMethodNames.NAMES.contains(method)) {
+                return false;
+            }
+            if (arguments > MAX_ARITY) {
+                return compute(method, arguments);
+            }
+            Arities arities = gdkMethods.computeIfAbsent(method, k -> new Arities());
+            long bit = 1L << arguments;
+            long bits = arities.bits;
+            if ((bits & bit) != 0) {
+                return (bits & (bit << 32)) != 0;
+            }
+            boolean found = compute(method, arguments);
+            // Racing updates may lose bits but never separate a known bit from its answer.
+            arities.bits = arities.bits | (found ? bit | (bit << 32) : bit);
+            return found;
+        }
+
+        private boolean compute(String method, int arguments) {
+            for (Class<?> dgmClass : SandboxInterceptor.DGM_CLASSES) {
+                if (GroovyCallSiteSelector.mightHaveGdkMethod(dgmClass, type, method, arguments)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * For arity <em>n</em>, bit <em>n</em> is set once known, and bit 32 + <em>n</em> is set if some GDK method might apply.
+     */
+    private static final class Arities {
+        volatile long bits;
+    }
+
+    private static final class GdkMethodNames {
+
+        static final Set<String> NAMES;
+
+        static {
+            Set<String> names = new HashSet<>();
+            for (Class<?> dgmClass : SandboxInterceptor.DGM_CLASSES) {
+                names.addAll(GroovyCallSiteSelector.methodNames(dgmClass));
+            }
+            NAMES = Collections.unmodifiableSet(names);
+        }
+
+    }
+
+}
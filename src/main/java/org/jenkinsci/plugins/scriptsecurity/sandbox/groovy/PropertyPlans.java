@@ -0,0 +1,637 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.scriptsecurity.sandbox.groovy;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.codehaus.groovy.runtime.MetaClassHelper;
+import org.codehaus.groovy.runtime.metaclass.ClosureMetaMethod;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.RejectedAccessException;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.StaticWhitelist;
+import org.kohsuke.groovy.sandbox.impl.Checker;
+
+/**
+ * Remembers how {@link SandboxInterceptor} resolves reads and writes of a property of a given receiver class,
+ * so that repeated accesses need only consult the whitelist.
+ * Plans are held in a {@link ClassValue} of the receiver class, or of the receiver itself when that is a {@link Class},
+ * since static members then depend on which class it is.
+ * Plans refer only to members of that class, its supertypes, and GDK classes, so they pin no other class loader.
+ */
+final class PropertyPlans {
+
+    /**
+     * Maximum number of properties per class with a cached plan, as property names come from scripts.
+     */
+    static final int MAX_PROPERTIES = 256;
+
+    private static final Object[] NO_ARGS = {};
+
+    private static final ClassValue<ConcurrentMap<String, Read>> READS = new PlansByName<>();
+    private static final ClassValue<ConcurrentMap<String, Read>> STATIC_READS = new PlansByName<>();
+
+    private static final ClassValue<ConcurrentMap<String, Writes>> WRITES = new PlansByName<>();
+    private static final ClassValue<ConcurrentMap<String, Writes>> STATIC_WRITES = new PlansByName<>();
+
+    /**
+     * Number of value classes per property with a cached write plan.
+     */
+    static final int WRITE_PLANS = 4;
+
+    private static final ClassValue<MapConstructors> MAP_CONSTRUCTORS = new ClassValue<MapConstructors>() {
+        @Override protected MapConstructors computeValue(Class<?> type) {
+            return new MapConstructors();
+        }
+    };
+
+    /**
+     * Number of map constructor plans per class, each for one map class and key sequence.
+     */
+    static final int MAP_CONSTRUCTOR_PLANS = 4;
+
+    private static final class PlansByName<P> extends ClassValue<ConcurrentMap<String, P>> {
+        @Override protected ConcurrentMap<String, P> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    }
+
+    private PropertyPlans() {}
+
+    /**
+     * Finds how to read a property, as {@link SandboxInterceptor#onGetProperty} would.
+     */
+    static @NonNull Read read(@NonNull Object receiver, @NonNull String property) {
+        if (receiver instanceof Long) {
+            return new Read(receiver, property); // GroovyCallSiteSelector.isInstancePrimitive narrows to int depending on the value
+        }
+        ConcurrentMap<String, Read> plans = receiver instanceof Class ? STATIC_READS.get((Class<?>) receiver) : READS.get(receiver.getClass());
+        Read plan = plans.get(property);
+        if (plan == null) {
+            plan = new Read(receiver, property);
+            if (plans.size() < MAX_PROPERTIES) {
+                plans.putIfAbsent(property, plan);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Finds how to write a property, as {@link SandboxInterceptor#onSetProperty} would.
+     * Plans are also keyed by the class of the value, which may select among overloaded setters.
+     */
+    static @NonNull Write write(@NonNull Object receiver, @NonNull String property, @CheckForNull Object value) {
+        Class<?> type = receiver instanceof Class ? (Class<?>) receiver : receiver.getClass();
+        if (!cacheable(type, value)) {
+            return new Write(receiver, property, value);
+        }
+        ConcurrentMap<String, Writes> plans = (receiver instanceof Class ? STATIC_WRITES : WRITES).get(type);
+        Writes writes = plans.get(property);
+        if (writes == null) {
+            if (plans.size() >= MAX_PROPERTIES) {
+                return new Write(receiver, property, value);
+            }
+            writes = plans.computeIfAbsent(property, k -> new Writes());
+        }
+        return writes.get(receiver, property, value);
+    }
+
+    /**
+     * Checks whether a write plan for a given value may be cached for a given class; cf. {@link MethodCallCache#method}.
+     */
+    private static boolean cacheable(Class<?> type, @CheckForNull Object value) {
+        if (value instanceof Long) {
+            return false; // GroovyCallSiteSelector.isInstancePrimitive narrows to int depending on the value
+        }
+        return value == null || MethodCallCache.visible(value.getClass().getClassLoader(), type.getClassLoader());
+    }
+
+    /**
+     * Starts following a Groovy map constructor call, as in {@link SandboxInterceptor#onNewInstance}.
+     * @param mapType the class of the map of properties, whose entries are to be iterated only once
+     */
+    static @NonNull MapAssignments mapAssignments(@NonNull Class<?> type, @NonNull Class<?> mapType) {
+        return new MapAssignments(type, mapType, MAP_CONSTRUCTORS.get(type));
+    }
+
+    /**
+     * Recent map constructor plans for one class, replaced in turn.
+     */
+    private static final class MapConstructors {
+
+        /** Read without locking: plans are immutable, so a stale read only means a miss. */
+        final MapConstructor[] plans = new MapConstructor[MAP_CONSTRUCTOR_PLANS];
+        private int next;
+
+        synchronized void add(MapConstructor plan) {
+            plans[next] = plan;
+            next = (next + 1) % MAP_CONSTRUCTOR_PLANS;
+        }
+
+    }
+
+    /**
+     * How a map constructor call with a given map class and keys, in iteration order, was resolved.
+     */
+    private static final class MapConstructor {
+
+        final Class<?> mapType;
+        final Constructor<?> constructor;
+        final String[] keys;
+        final Write[] writes;
+
+        MapConstructor(Class<?> mapType, Constructor<?> constructor, String[] keys, Write[] writes) {
+            this.mapType = mapType;
+            this.constructor = constructor;
+            this.keys = keys;
+            this.writes = writes;
+        }
+
+        boolean matches(int index, String property, @CheckForNull Object value) {
+            return index < keys.length && keys[index].equals(property) && writes[index].valueType == (value == null ? null : value.getClass());
+        }
+
+    }
+
+    /**
+     * Follows one map constructor call against the plans of earlier calls, as its map entries are assigned in turn.
+     * While some plan matches the keys and value classes seen so far, its write plans are used;
+     * once none does, writes are resolved as usual, and a new plan is recorded when the call completes.
+     */
+    static final class MapAssignments {
+
+        private final Class<?> type;
+        private final Class<?> mapType;
+        private final MapConstructors cache;
+        /** Plans still matching this call, or null where one no longer does. */
+        private final MapConstructor[] candidates;
+        private @CheckForNull Constructor<?> constructor;
+        private final List<String> keys = new ArrayList<>();
+        private final List<Write> writes = new ArrayList<>();
+        /** Whether the plan of this call may be recorded. */
+        private boolean cacheable;
+
+        MapAssignments(Class<?> type, Class<?> mapType, MapConstructors cache) {
+            this.type = type;
+            this.mapType = mapType;
+            this.cache = cache;
+            candidates = new MapConstructor[MAP_CONSTRUCTOR_PLANS];
+            for (int i = 0; i < MAP_CONSTRUCTOR_PLANS; i++) {
+                MapConstructor plan = cache.plans[i];
+                if (plan != null && plan.mapType == mapType) {
+                    candidates[i] = plan;
+                }
+            }
+            cacheable = MethodCallCache.visible(mapType.getClassLoader(), type.getClassLoader());
+        }
+
+        /**
+         * Selects the constructor for the call, reusing an earlier selection for the same map class.
+         * @param args the single map argument
+         */
+        @CheckForNull Constructor<?> constructor(@NonNull Object[] args) {
+            for (MapConstructor plan : candidates) {
+                if (plan != null) {
+                    return constructor = plan.constructor;
+                }
+            }
+            return constructor = GroovyCallSiteSelector.constructor(type, args);
+        }
+
+        /**
+         * Finds how to assign the next map entry to the newly constructed object.
+         * @return the plan of the assignment, or null if the key is not a string
+         */
+        @CheckForNull Assignment next(@NonNull Object receiver, @CheckForNull Object key, @CheckForNull Object value) {
+            if (!(key instanceof String)) {
+                cacheable = false;
+                return null;
+            }
+            String property = (String) key;
+            int index = keys.size();
+            Write write = null;
+            for (int i = 0; i < MAP_CONSTRUCTOR_PLANS; i++) {
+                MapConstructor plan = candidates[i];
+                if (plan != null) {
+                    if (plan.matches(index, property, value)) {
+                        if (write == null) {
+                            write = plan.writes[index];
+                        }
+                    } else {
+                        candidates[i] = null;
+                    }
+                }
+            }
+            if (write == null) {
+                write = write(receiver, property, value);
+                if (!cacheable(type, value)) {
+                    cacheable = false;
+                }
+            }
+            if (cacheable) {
+                keys.add(property);
+                writes.add(write);
+            }
+            return new Assignment(receiver, property, write);
+        }
+
+        /**
+         * Records the plan of this call once all entries have been assigned, unless an earlier plan matched it exactly.
+         */
+        void done() {
+            if (!cacheable || constructor == null || keys.size() > MAX_PROPERTIES) {
+                return;
+            }
+            for (MapConstructor plan : candidates) {
+                if (plan != null && plan.keys.length == keys.size()) {
+                    return;
+                }
+            }
+            cache.add(new MapConstructor(mapType, constructor, keys.toArray(new String[0]), writes.toArray(new Write[0])));
+        }
+
+    }
+
+    /**
+     * A write plan selected for assigning one property of one object, to be used by {@link SandboxInterceptor#onSetProperty} when it is asked to do just that.
+     */
+    static final class Assignment {
+
+        private final Object receiver;
+        private final String property;
+        final Write write;
+
+        Assignment(Object receiver, String property, Write write) {
+            this.receiver = receiver;
+            this.property = property;
+            this.write = write;
+        }
+
+        boolean matches(@NonNull Object receiver, @NonNull String property, @CheckForNull Object value) {
+            return this.receiver == receiver && this.property.equals(property) && write.valueType == (value == null ? null : value.getClass());
+        }
+
+    }
+
+    /**
+     * Write plans for one property, replaced in turn.
+     */
+    private static final class Writes {
+
+        /** Read without locking: plans are immutable, so a stale read only means a miss. */
+        private final Write[] plans = new Write[WRITE_PLANS];
+        private int next;
+
+        Write get(Object receiver, String property, @CheckForNull Object value) {
+            Class<?> valueType = value == null ? null : value.getClass();
+            for (Write plan : plans) {
+                if (plan != null && plan.valueType == valueType) {
+                    return plan;
+                }
+            }
+            Write plan = new Write(receiver, property, value);
+            synchronized (this) {
+                plans[next] = plan;
+                next = (next + 1) % WRITE_PLANS;
+            }
+            return plan;
+        }
+
+    }
+
+    /**
+     * Candidates to read a property, in order of precedence.
+     * The first which the whitelist permits is used; if none is, the first found is rejected.
+     */
+    static final class Read {
+
+        private final Step[] steps;
+
+        Read(Object receiver, String property) {
+            List<Step> steps = new ArrayList<>();
+            String getter = "get" + MetaClassHelper.capitalize(property);
+            String booleanGetter = "is" + MetaClassHelper.capitalize(property);
+            Method getterMethod = GroovyCallSiteSelector.method(receiver, getter, NO_ARGS);
+            if (getterMethod != null) {
+                steps.add(new Step(Kind.METHOD, getterMethod, null));
+            }
+            Method booleanGetterMethod = GroovyCallSiteSelector.method(receiver, booleanGetter, NO_ARGS);
+            if (booleanGetterMethod != null && booleanGetterMethod.getReturnType() == boolean.class) {
+                steps.add(new Step(Kind.METHOD, booleanGetterMethod, null));
+            }
+            // look for GDK methods
+            Object[] selfArgs = new Object[] {receiver};
+            for (Class<?> dgmClass : SandboxInterceptor.DGM_CLASSES) {
+                Method dgmGetterMethod = GroovyCallSiteSelector.gdkMethod(dgmClass, getter, selfArgs);
+                if (dgmGetterMethod != null) {
+                    steps.add(new Step(Kind.GDK_METHOD, dgmGetterMethod, null));
+                }
+                Method dgmBooleanGetterMethod = GroovyCallSiteSelector.gdkMethod(dgmClass, booleanGetter, selfArgs);
+                if (dgmBooleanGetterMethod != null && dgmBooleanGetterMethod.getReturnType() == boolean.class) {
+                    steps.add(new Step(Kind.GDK_METHOD, dgmBooleanGetterMethod, null));
+                }
+            }
+            Field field = GroovyCallSiteSelector.field(receiver, property);
+            if (field != null) {
+                steps.add(new Step(Kind.FIELD, field, null));
+            }
+            // GroovyObject property access
+            Method getPropertyMethod = GroovyCallSiteSelector.method(receiver, "getProperty", new Object[] {property});
+            if (getPropertyMethod != null && !SandboxInterceptor.isSyntheticMethod(receiver, getPropertyMethod)) {
+                steps.add(new Step(Kind.GET_PROPERTY, getPropertyMethod, null));
+            }
+            // The metaclass may change, so this is checked on each access.
+            steps.add(new Step(Kind.CLOSURE_META_METHOD, null, getter));
+            // TODO similar metaclass handling for isXXX, static methods (if possible?), setters
+            if (receiver instanceof Class) {
+                Method staticGetterMethod = GroovyCallSiteSelector.staticMethod((Class<?>) receiver, getter, NO_ARGS);
+                if (staticGetterMethod != null) {
+                    steps.add(new Step(Kind.STATIC_METHOD, staticGetterMethod, null));
+                }
+                Method staticBooleanGetterMethod = GroovyCallSiteSelector.staticMethod((Class<?>) receiver, booleanGetter, NO_ARGS);
+                if (staticBooleanGetterMethod != null && staticBooleanGetterMethod.getReturnType() == boolean.class) {
+                    steps.add(new Step(Kind.STATIC_METHOD, staticBooleanGetterMethod, null));
+                }
+                Field staticField = GroovyCallSiteSelector.staticField((Class<?>) receiver, property);
+                if (staticField != null) {
+                    steps.add(new Step(Kind.STATIC_FIELD, staticField, null));
+                }
+            }
+            this.steps = steps.toArray(new Step[0]);
+        }
+
+        /**
+         * Checks whether the property may be read.
+         * @return null if so, else the step to reject, if any
+         */
+        @CheckForNull Step check(@NonNull Whitelist whitelist, @NonNull Object receiver, @NonNull String property) {
+            Step rejected = null;
+            for (Step step : steps) {
+                if (step.permits(whitelist, receiver, property)) {
+                    return null;
+                } else if (rejected == null && step.kind != Kind.CLOSURE_META_METHOD) {
+                    rejected = step;
+                }
+            }
+            return rejected != null ? rejected : Step.NONE;
+        }
+
+    }
+
+    /**
+     * Candidates to write a property with a value of a given class, in order of precedence.
+     * The first which the whitelist permits is used, after checking casts of the value; if none is, the first found is rejected.
+     */
+    static final class Write {
+
+        /** The class of the value, or null for a null value. */
+        private final @CheckForNull Class<?> valueType;
+        private final WriteStep[] steps;
+
+        Write(Object receiver, String property, @CheckForNull Object value) {
+            valueType = value == null ? null : value.getClass();
+            List<WriteStep> steps = new ArrayList<>();
+            // https://github.com/kohsuke/groovy-sandbox/issues/7 need to explicitly check for getters and setters:
+            Object[] valueArg = new Object[] {value};
+            String setter = "set" + MetaClassHelper.capitalize(property);
+            List<Method> setterMethods = GroovyCallSiteSelector.methods(receiver, setter, m -> m.getParameterCount() == 1);
+            Method setterMethod = setterMethods.size() == 1
+                    ? setterMethods.get(0) // If there is only a single setter, the argument will be cast to match the declared parameter type.
+                    : GroovyCallSiteSelector.method(receiver, setter, valueArg); // If there are multiple setters, MultipleSetterProperty just calls invokeMethod.
+            if (setterMethod != null) {
+                steps.add(new WriteStep(Kind.SETTER, setterMethod, castTargets(setterMethod, 1)));
+            }
+            Object[] propertyValueArgs = new Object[] {property, value};
+            Method setPropertyMethod = GroovyCallSiteSelector.method(receiver, "setProperty", propertyValueArgs);
+            if (setPropertyMethod != null && !SandboxInterceptor.isSyntheticMethod(receiver, setPropertyMethod)) {
+                steps.add(new WriteStep(Kind.SET_PROPERTY, setPropertyMethod, castTargets(setPropertyMethod, 2)));
+            }
+            Field field = GroovyCallSiteSelector.field(receiver, property);
+            if (field != null) {
+                steps.add(new WriteStep(Kind.FIELD, field, new Class<?>[] {field.getType()}));
+            }
+            if (receiver instanceof Class) {
+                List<Method> staticSetterMethods = GroovyCallSiteSelector.staticMethods((Class<?>) receiver, setter, m -> m.getParameterCount() == 1);
+                Method staticSetterMethod = staticSetterMethods.size() == 1
+                    ? staticSetterMethods.get(0) // If there is only a single setter, the value will be cast to match the declared parameter type.
+                    : GroovyCallSiteSelector.staticMethod((Class<?>) receiver, setter, valueArg); // If there are multiple setters, MultipleSetterProperty just calls invokeMethod.
+                if (staticSetterMethod != null) {
+                    steps.add(new WriteStep(Kind.STATIC_METHOD, staticSetterMethod, castTargets(staticSetterMethod, 1)));
+                }
+                Field staticField = GroovyCallSiteSelector.staticField((Class<?>) receiver, property);
+                if (staticField != null) {
+                    steps.add(new WriteStep(Kind.STATIC_FIELD, staticField, new Class<?>[] {staticField.getType()}));
+                }
+            }
+            this.steps = steps.toArray(new WriteStep[0]);
+        }
+
+        /**
+         * Checks whether the property may be written, including {@linkplain Checker#preCheckedCast casts} of the value.
+         * @return null if so, else the step to reject, if any
+         */
+        @CheckForNull WriteStep check(@NonNull Whitelist whitelist, @NonNull Object receiver, @NonNull String property, @CheckForNull Object value) throws Throwable {
+            WriteStep rejected = null;
+            for (WriteStep step : steps) {
+                Object[] args = step.kind == Kind.SET_PROPERTY ? new Object[] {property, value} : new Object[] {value};
+                if (step.permits(whitelist, receiver, args)) {
+                    step.preCheckCasts(args);
+                    return null;
+                } else if (rejected == null) {
+                    rejected = step;
+                }
+            }
+            return rejected != null ? rejected : WriteStep.NONE;
+        }
+
+        /**
+         * The types to which each argument will be cast, as for a varargs method the last parameter may take several.
+         */
+        private static Class<?>[] castTargets(Method method, int arguments) {
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            Class<?>[] targets = new Class<?>[arguments];
+            for (int i = 0; i < parameterTypes.length && i < arguments; i++) {
+                if (i == parameterTypes.length - 1 && method.isVarArgs()) {
+                    for (int j = i; j < arguments; j++) {
+                        targets[j] = parameterTypes[i].getComponentType();
+                    }
+                } else {
+                    targets[i] = parameterTypes[i];
+                }
+            }
+            return targets;
+        }
+
+    }
+
+    private enum Kind {
+        METHOD, GDK_METHOD, FIELD, GET_PROPERTY, CLOSURE_META_METHOD, STATIC_METHOD, STATIC_FIELD, SETTER, SET_PROPERTY, NONE
+    }
+
+    /**
+     * One candidate member; its rejection is only built if thrown.
+     */
+    static final class Step {
+
+        /** Indicates that no candidate was found. */
+        static final Step NONE = new Step(Kind.NONE, null, null);
+
+        private final Kind kind;
+        private final @CheckForNull Object member;
+        /** For {@link Kind#CLOSURE_META_METHOD}, the getter name. */
+        private final @CheckForNull String name;
+
+        private Step(Kind kind, @CheckForNull Object member, @CheckForNull String name) {
+            this.kind = kind;
+            this.member = member;
+            this.name = name;
+        }
+
+        boolean permits(Whitelist whitelist, Object receiver, String property) {
+            switch (kind) {
+            case METHOD:
+                return SandboxInterceptor.permitsMethod(whitelist, (Method) member, receiver, NO_ARGS);
+            case GDK_METHOD:
+                return whitelist.permitsStaticMethod((Method) member, new Object[] {receiver});
+            case FIELD:
+                return SandboxInterceptor.permitsFieldGet(whitelist, (Field) member, receiver);
+            case GET_PROPERTY:
+                return whitelist.permitsMethod((Method) member, receiver, new Object[] {property});
+            case CLOSURE_META_METHOD:
+                return SandboxInterceptor.findMetaMethod(receiver, name, NO_ARGS) instanceof ClosureMetaMethod;
+            case STATIC_METHOD:
+                return whitelist.permitsStaticMethod((Method) member, NO_ARGS);
+            case STATIC_FIELD:
+                return whitelist.permitsStaticFieldGet((Field) member);
+            default:
+                return false;
+            }
+        }
+
+        /**
+         * Builds the exception for a step returned by {@link Read#check}, other than {@link #NONE}.
+         */
+        @NonNull RejectedAccessException reject(Object receiver, String property) {
+            switch (kind) {
+            case METHOD:
+                return SandboxInterceptor.rejectMethod((Method) member);
+            case GDK_METHOD:
+            case STATIC_METHOD:
+                return StaticWhitelist.rejectStaticMethod((Method) member);
+            case FIELD:
+                return SandboxInterceptor.rejectField((Field) member);
+            case GET_PROPERTY:
+                return StaticWhitelist.rejectMethod((Method) member, receiver.getClass().getName() + "." + property);
+            case STATIC_FIELD:
+                return StaticWhitelist.rejectStaticField((Field) member);
+            default:
+                throw new IllegalStateException(kind.name());
+            }
+        }
+
+    }
+
+    /**
+     * One candidate member to write a property, with the casts its arguments need.
+     */
+    static final class WriteStep {
+
+        /** Indicates that no candidate was found. */
+        static final WriteStep NONE = new WriteStep(Kind.NONE, null, new Class<?>[0]);
+
+        private final Kind kind;
+        private final @CheckForNull Object member;
+        /** Types to which the arguments are cast, or null for those without a parameter. */
+        private final Class<?>[] castTargets;
+
+        private WriteStep(Kind kind, @CheckForNull Object member, Class<?>[] castTargets) {
+            this.kind = kind;
+            this.member = member;
+            this.castTargets = castTargets;
+        }
+
+        boolean permits(Whitelist whitelist, Object receiver, Object[] args) {
+            switch (kind) {
+            case SETTER:
+                return SandboxInterceptor.permitsMethod(whitelist, (Method) member, receiver, args);
+            case SET_PROPERTY:
+                return whitelist.permitsMethod((Method) member, receiver, args);
+            case FIELD:
+                return SandboxInterceptor.permitsFieldSet(whitelist, (Field) member, receiver, args[0]);
+            case STATIC_METHOD:
+                return whitelist.permitsStaticMethod((Method) member, args);
+            case STATIC_FIELD:
+                return whitelist.permitsStaticFieldSet((Field) member, args[0]);
+            default:
+                return false;
+            }
+        }
+
+        void preCheckCasts(Object[] args) throws Throwable {
+            for (int i = 0; i < castTargets.length; i++) {
+                if (castTargets[i] != null && !passesUnchanged(castTargets[i], args[i])) {
+                    Checker.preCheckedCast(castTargets[i], args[i], false, false, false);
+                }
+            }
+        }
+
+        /**
+         * Whether {@link Checker#preCheckedCast} would pass a value as is: only an instance of a reference type.
+         * Anything else, including null, a {@link groovy.lang.GString} for a {@link String}, or a number or collection
+         * which Groovy would coerce, still goes through the check.
+         */
+        static boolean passesUnchanged(@NonNull Class<?> target, @CheckForNull Object value) {
+            return !target.isPrimitive() && target.isInstance(value);
+        }
+
+        /**
+         * Builds the exception for a step returned by {@link Write#check}, other than {@link #NONE}.
+         */
+        @NonNull RejectedAccessException reject(Object receiver, String property) {
+            switch (kind) {
+            case SETTER:
+                return SandboxInterceptor.rejectMethod((Method) member);
+            case SET_PROPERTY:
+                return StaticWhitelist.rejectMethod((Method) member, receiver.getClass().getName() + "." + property);
+            case FIELD:
+                return SandboxInterceptor.rejectField((Field) member);
+            case STATIC_METHOD:
+                return StaticWhitelist.rejectStaticMethod((Method) member);
+            case STATIC_FIELD:
+                return StaticWhitelist.rejectStaticField((Field) member);
+            default:
+                throw new IllegalStateException(kind.name());
+            }
+        }
+
+    }
+
+}
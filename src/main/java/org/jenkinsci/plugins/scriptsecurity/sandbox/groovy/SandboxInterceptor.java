@@ -33,11 +33,9 @@ import groovy.lang.Script;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -49,7 +47,6 @@ import org.codehaus.groovy.runtime.DateGroovyMethods;
 import org.codehaus.groovy.runtime.DefaultGroovyMethods;
 import org.codehaus.groovy.runtime.EncodingGroovyMethods;
 import org.codehaus.groovy.runtime.InvokerHelper;
-import org.codehaus.groovy.runtime.MetaClassHelper;
 import org.codehaus.groovy.runtime.ProcessGroovyMethods;
 import org.codehaus.groovy.runtime.SqlGroovyMethods;
 import org.codehaus.groovy.runtime.StringGroovyMethods;
@@ -72,13 +69,18 @@ final class SandboxInterceptor extends GroovyInterceptor {
     private static final Logger LOGGER = Logger.getLogger(SandboxInterceptor.class.getName());
 
     private final Whitelist whitelist;
-    
+
+    /**
+     * The plan of the map constructor assignment in progress, if any; only used when it matches the property being set.
+     */
+    private @CheckForNull PropertyPlans.Assignment assignment;
+
     SandboxInterceptor(Whitelist whitelist) {
         this.whitelist = whitelist;
     }
 
     /** should be synchronized with {@link DgmConverter} */
-    private static final Class<?>[] DGM_CLASSES = {
+    static final Class<?>[] DGM_CLASSES = {
         DefaultGroovyMethods.class,
         StringGroovyMethods.class,
         SwingGroovyMethods.class,
@@ -93,34 +95,38 @@ final class SandboxInterceptor extends GroovyInterceptor {
     private static final Set<String> NUMBER_MATH_NAMES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList("plus", "minus", "multiply", "div", "compareTo", "or", "and", "xor", "intdiv", "mod", "leftShift", "rightShift", "rightShiftUnsigned")));
 
     @Override public Object onMethodCall(GroovyInterceptor.Invoker invoker, Object receiver, String method, Object... args) throws Throwable {
-        Method m = GroovyCallSiteSelector.method(receiver, method, args);
+        Method m = MethodCallCache.method(receiver, method, args).method;
         if (m == null) {
             if (receiver instanceof Number && NUMBER_MATH_NAMES.contains(method)) {
                 // Synthetic methods like Integer.plus(Integer).
                 return super.onMethodCall(invoker, receiver, method, args);
             }
 
+            MethodCallCache.Fallbacks fallbacks = MethodCallCache.fallbacks(receiver.getClass());
+
             // look for GDK methods
-            Object[] selfArgs = new Object[args.length + 1];
-            selfArgs[0] = receiver;
-            System.arraycopy(args, 0, selfArgs, 1, args.length);
-            Method foundDgmMethod = null;
-
-            for (Class<?> dgmClass : DGM_CLASSES) {
-                Method dgmMethod = GroovyCallSiteSelector.staticMethod(dgmClass, method, selfArgs);
-                if (dgmMethod != null) {
-                    if (whitelist.permitsStaticMethod(dgmMethod, selfArgs)) {
-                        return super.onMethodCall(invoker, receiver, method, args);
-                    } else if (foundDgmMethod == null) {
-                        foundDgmMethod = dgmMethod;
+            if (fallbacks.mightHaveGdkMethod(method, args.length)) {
+                Object[] selfArgs = new Object[args.length + 1];
+                selfArgs[0] = receiver;
+                System.arraycopy(args, 0, selfArgs, 1, args.length);
+                Method foundDgmMethod = null;
+
+                for (Class<?> dgmClass : DGM_CLASSES) {
+                    Method dgmMethod = GroovyCallSiteSelector.gdkMethod(dgmClass, method, selfArgs);
+                    if (dgmMethod != null) {
+                        if (whitelist.permitsStaticMethod(dgmMethod, selfArgs)) {
+                            return super.onMethodCall(invoker, receiver, method, args);
+                        } else if (foundDgmMethod == null) {
+                            foundDgmMethod = dgmMethod;
+                        }
                     }
                 }
-            }
 
-            // Some methods are found by GroovyCallSiteSelector in both DefaultGroovyMethods and StringGroovyMethods, so
-            // we're iterating over the whole list before we decide to fail out on the first failure we found.
-            if (foundDgmMethod != null) {
-                throw StaticWhitelist.rejectStaticMethod(foundDgmMethod);
+                // Some methods are found by GroovyCallSiteSelector in both DefaultGroovyMethods and StringGroovyMethods, so
+                // we're iterating over the whole list before we decide to fail out on the first failure we found.
+                if (foundDgmMethod != null) {
+                    throw StaticWhitelist.rejectStaticMethod(foundDgmMethod);
+                }
             }
 
             // allow calling Closure elements of Maps as methods
@@ -143,11 +149,8 @@ final class SandboxInterceptor extends GroovyInterceptor {
             }
 
             // if no matching method, look for catchAll "invokeMethod"
-            try {
-                receiver.getClass().getMethod("invokeMethod", String.class, Object.class);
+            if (fallbacks.invokeMethod) {
                 return onMethodCall(invoker, receiver, "invokeMethod", method, args);
-            } catch (NoSuchMethodException e) {
-                // fall through
             }
 
             MetaMethod metaMethod = findMetaMethod(receiver, method, args);
@@ -169,7 +172,8 @@ final class SandboxInterceptor extends GroovyInterceptor {
     }
 
     @Override public Object onNewInstance(GroovyInterceptor.Invoker invoker, Class receiver, Object... args) throws Throwable {
-        Constructor<?> c = GroovyCallSiteSelector.constructor(receiver, args);
+        PropertyPlans.MapAssignments assignments = args.length == 1 && args[0] instanceof Map ? PropertyPlans.mapAssignments(receiver, args[0].getClass()) : null;
+        Constructor<?> c = assignments != null ? assignments.constructor(args) : GroovyCallSiteSelector.constructor(receiver, args);
         if (c == null) {
             throw new RejectedAccessException("No such constructor found: new " + EnumeratingWhitelist.getName(receiver) + printArgumentTypes(args));
         } else if (StaticWhitelist.isPermanentlyBlacklistedConstructor(c)) {
@@ -188,9 +192,18 @@ final class SandboxInterceptor extends GroovyInterceptor {
                 // over it here to pre-check the property assignments and then let Groovy iterate over it again to
                 // actually perform them, so we only iterate over it once and perform the property assignments
                 // ourselves using sandbox-aware methods.
+                // Assignments still go through Checker, but onSetProperty may reuse the write plans of earlier calls.
                 for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) args[0]).entrySet()) {
-                    Checker.checkedSetProperty(newInstance, entry.getKey(), false, false, Types.ASSIGN, entry.getValue());
+                    Object key = entry.getKey();
+                    Object value = entry.getValue();
+                    assignment = assignments.next(newInstance, key, value);
+                    try {
+                        Checker.checkedSetProperty(newInstance, key, false, false, Types.ASSIGN, value);
+                    } finally {
+                        assignment = null;
+                    }
                 }
+                assignments.done();
                 return newInstance;
             }
             return super.onNewInstance(invoker, receiver, args);
@@ -217,65 +230,13 @@ final class SandboxInterceptor extends GroovyInterceptor {
         if (receiver instanceof Script && !property.equals("binding") && !property.equals("metaClass")) {
             return super.onSetProperty(invoker, receiver, property, value);
         }
-        Rejector rejector = null; // avoid creating exception objects unless and until thrown
-        // https://github.com/kohsuke/groovy-sandbox/issues/7 need to explicitly check for getters and setters:
-        Object[] valueArg = new Object[] {value};
-        String setter = "set" + MetaClassHelper.capitalize(property);
-        List<Method> setterMethods = GroovyCallSiteSelector.methods(receiver, setter, m -> m.getParameterCount() == 1);
-        final Method setterMethod = setterMethods.size() == 1
-                ? setterMethods.get(0) // If there is only a single setter, the argument will be cast to match the declared parameter type.
-                : GroovyCallSiteSelector.method(receiver, setter, valueArg); // If there are multiple setters, MultipleSetterProperty just calls invokeMethod.
-        if (setterMethod != null) {
-            if (permitsMethod(whitelist, setterMethod, receiver, valueArg)) {
-                preCheckArgumentCasts(setterMethod, valueArg);
-                return super.onSetProperty(invoker, receiver, property, value);
-            } else if (rejector == null) {
-                rejector = () -> rejectMethod(setterMethod);
-            }
-        }
-        Object[] propertyValueArgs = new Object[] {property, value};
-        final Method setPropertyMethod = GroovyCallSiteSelector.method(receiver, "setProperty", propertyValueArgs);
-        if (setPropertyMethod != null && !isSyntheticMethod(receiver, setPropertyMethod)) {
-            if (whitelist.permitsMethod(setPropertyMethod, receiver, propertyValueArgs)) {
-                preCheckArgumentCasts(setPropertyMethod, propertyValueArgs);
-                return super.onSetProperty(invoker, receiver, property, value);
-            } else if (rejector == null) {
-                rejector = () -> StaticWhitelist.rejectMethod(setPropertyMethod, receiver.getClass().getName() + "." + property);
-            }
-        }
-        final Field field = GroovyCallSiteSelector.field(receiver, property);
-        if (field != null) {
-            if (permitsFieldSet(whitelist, field, receiver, value)) {
-                Checker.preCheckedCast(field.getType(), value, false, false, false);
-                return super.onSetProperty(invoker, receiver, property, value);
-            } else if (rejector == null) {
-                rejector = () -> rejectField(field);
-            }
-        }
-        if (receiver instanceof Class) {
-            List<Method> staticSetterMethods = GroovyCallSiteSelector.staticMethods((Class) receiver, setter, m -> m.getParameterCount() == 1);
-            final Method staticSetterMethod = staticSetterMethods.size() == 1
-                ? staticSetterMethods.get(0) // If there is only a single setter, the value will be cast to match the declared parameter type.
-                : GroovyCallSiteSelector.staticMethod((Class) receiver, setter, valueArg); // If there are multiple setters, MultipleSetterProperty just calls invokeMethod.
-            if (staticSetterMethod != null) {
-                if (whitelist.permitsStaticMethod(staticSetterMethod, valueArg)) {
-                    preCheckArgumentCasts(staticSetterMethod, valueArg);
-                    return super.onSetProperty(invoker, receiver, property, value);
-                } else if (rejector == null) {
-                    rejector = () -> StaticWhitelist.rejectStaticMethod(staticSetterMethod);
-                }
-            }
-            final Field staticField = GroovyCallSiteSelector.staticField((Class) receiver, property);
-            if (staticField != null) {
-                if (whitelist.permitsStaticFieldSet(staticField, value)) {
-                    Checker.preCheckedCast(staticField.getType(), value, false, false, false);
-                    return super.onSetProperty(invoker, receiver, property, value);
-                } else if (rejector == null) {
-                    rejector = () -> StaticWhitelist.rejectStaticField(staticField);
-                }
-            }
+        PropertyPlans.Assignment planned = assignment;
+        PropertyPlans.Write write = planned != null && planned.matches(receiver, property, value) ? planned.write : PropertyPlans.write(receiver, property, value);
+        PropertyPlans.WriteStep rejected = write.check(whitelist, receiver, property, value);
+        if (rejected == null) {
+            return super.onSetProperty(invoker, receiver, property, value);
         }
-        throw rejector != null ? rejector.reject() : unclassifiedField(receiver, property);
+        throw rejected != PropertyPlans.WriteStep.NONE ? rejected.reject(receiver, property) : unclassifiedField(receiver, property);
     }
 
     @Override public Object onGetProperty(GroovyInterceptor.Invoker invoker, final Object receiver, final String property) throws Throwable {
@@ -291,99 +252,14 @@ final class SandboxInterceptor extends GroovyInterceptor {
         if (property.equals("length") && receiver.getClass().isArray()) {
             return super.onGetProperty(invoker, receiver, property);
         }
-        Rejector rejector = null;
-        Object[] noArgs = new Object[] {};
-        String getter = "get" + MetaClassHelper.capitalize(property);
-        final Method getterMethod = GroovyCallSiteSelector.method(receiver, getter, noArgs);
-        if (getterMethod != null) {
-            if (permitsMethod(whitelist, getterMethod, receiver, noArgs)) {
-                return super.onGetProperty(invoker, receiver, property);
-            } else if (rejector == null) {
-                rejector = () -> rejectMethod(getterMethod);
-            }
-        }
-        String booleanGetter = "is" + MetaClassHelper.capitalize(property);
-        final Method booleanGetterMethod = GroovyCallSiteSelector.method(receiver, booleanGetter, noArgs);
-        if (booleanGetterMethod != null && booleanGetterMethod.getReturnType() == boolean.class) {
-            if (permitsMethod(whitelist, booleanGetterMethod, receiver, noArgs)) {
-                return super.onGetProperty(invoker, receiver, property);
-            } else if (rejector == null) {
-                rejector = () -> rejectMethod(booleanGetterMethod);
-            }
-        }
-        // look for GDK methods
-        Object[] selfArgs = new Object[] {receiver};
-        for (Class<?> dgmClass : DGM_CLASSES) {
-            final Method dgmGetterMethod = GroovyCallSiteSelector.staticMethod(dgmClass, getter, selfArgs);
-            if (dgmGetterMethod != null) {
-                if (whitelist.permitsStaticMethod(dgmGetterMethod, selfArgs)) {
-                    return super.onGetProperty(invoker, receiver, property);
-                } else if (rejector == null) {
-                    rejector = () -> StaticWhitelist.rejectStaticMethod(dgmGetterMethod);
-                }
-            }
-            final Method dgmBooleanGetterMethod = GroovyCallSiteSelector.staticMethod(dgmClass, booleanGetter, selfArgs);
-            if (dgmBooleanGetterMethod != null && dgmBooleanGetterMethod.getReturnType() == boolean.class) {
-                if (whitelist.permitsStaticMethod(dgmBooleanGetterMethod, selfArgs)) {
-                    return super.onGetProperty(invoker, receiver, property);
-                } else if (rejector == null) {
-                    rejector = () -> StaticWhitelist.rejectStaticMethod(dgmBooleanGetterMethod);
-                }
-            }
-        }
-        final Field field = GroovyCallSiteSelector.field(receiver, property);
-        if (field != null) {
-            if (permitsFieldGet(whitelist, field, receiver)) {
-                return super.onGetProperty(invoker, receiver, property);
-            } else if (rejector == null) {
-                rejector = () -> rejectField(field);
-            }
-        }
-        // GroovyObject property access
-        Object[] propertyArg = new Object[] {property};
-        final Method getPropertyMethod = GroovyCallSiteSelector.method(receiver, "getProperty", propertyArg);
-        if (getPropertyMethod != null && !isSyntheticMethod(receiver, getPropertyMethod)) {
-            if (whitelist.permitsMethod(getPropertyMethod, receiver, propertyArg)) {
-                return super.onGetProperty(invoker, receiver, property);
-            } else if (rejector == null) {
-                rejector = () -> StaticWhitelist.rejectMethod(getPropertyMethod, receiver.getClass().getName() + "." + property);
-            }
-        }
-        MetaMethod metaMethod = findMetaMethod(receiver, getter, noArgs);
-        if (metaMethod instanceof ClosureMetaMethod) {
+        PropertyPlans.Step rejected = PropertyPlans.read(receiver, property).check(whitelist, receiver, property);
+        if (rejected == null) {
             return super.onGetProperty(invoker, receiver, property);
         }
-        // TODO similar metaclass handling for isXXX, static methods (if possible?), setters
-        if (receiver instanceof Class) {
-            final Method staticGetterMethod = GroovyCallSiteSelector.staticMethod((Class) receiver, getter, noArgs);
-            if (staticGetterMethod != null) {
-                if (whitelist.permitsStaticMethod(staticGetterMethod, noArgs)) {
-                    return super.onGetProperty(invoker, receiver, property);
-                } else if (rejector == null) {
-                    rejector = () -> StaticWhitelist.rejectStaticMethod(staticGetterMethod);
-                }
-            }
-            final Method staticBooleanGetterMethod = GroovyCallSiteSelector.staticMethod((Class) receiver, booleanGetter, noArgs);
-            if (staticBooleanGetterMethod != null && staticBooleanGetterMethod.getReturnType() == boolean.class) {
-                if (whitelist.permitsStaticMethod(staticBooleanGetterMethod, noArgs)) {
-                    return super.onGetProperty(invoker, receiver, property);
-                } else if (rejector == null) {
-                    rejector = () -> StaticWhitelist.rejectStaticMethod(staticBooleanGetterMethod);
-                }
-            }
-            final Field staticField = GroovyCallSiteSelector.staticField((Class) receiver, property);
-            if (staticField != null) {
-                if (whitelist.permitsStaticFieldGet(staticField)) {
-                    return super.onGetProperty(invoker, receiver, property);
-                } else if (rejector == null) {
-                    rejector = () -> StaticWhitelist.rejectStaticField(staticField);
-                }
-            }
-        }
         if (mpe != null) {
             throw mpe;
         }
-        throw rejector != null ? rejector.reject() : unclassifiedField(receiver, property);
+        throw rejected != PropertyPlans.Step.NONE ? rejected.reject(receiver, property) : unclassifiedField(receiver, property);
     }
 
     @Override
@@ -470,7 +346,7 @@ final class SandboxInterceptor extends GroovyInterceptor {
         }
         args = new Object[] {receiver, index};
         for (Class<?> dgm : DGM_CLASSES) {
-            method = GroovyCallSiteSelector.staticMethod(dgm, "getAt", args);
+            method = GroovyCallSiteSelector.gdkMethod(dgm, "getAt", args);
             if (method != null) {
                 if (whitelist.permitsStaticMethod(method, args)) {
                     return super.onGetArray(invoker, receiver, index);
@@ -497,7 +373,7 @@ final class SandboxInterceptor extends GroovyInterceptor {
         }
         args = new Object[] {receiver, index, value};
         for (Class<?> dgm : DGM_CLASSES) {
-            method = GroovyCallSiteSelector.staticMethod(dgm, "putAt", args);
+            method = GroovyCallSiteSelector.gdkMethod(dgm, "putAt", args);
             if (method != null) {
                 if (whitelist.permitsStaticMethod(method, args)) {
                     return super.onSetArray(invoker, receiver, index, value);
@@ -509,23 +385,6 @@ final class SandboxInterceptor extends GroovyInterceptor {
         throw new RejectedAccessException("No such putAt method found: putAt method " + EnumeratingWhitelist.getName(receiver) + "[" + EnumeratingWhitelist.getName(index) + "]=" + EnumeratingWhitelist.getName(value));
     }
 
-    private static void preCheckArgumentCasts(Method method, Object[] args) throws Throwable {
-        Parameter[] parameters = method.getParameters();
-        for (int i = 0; i < parameters.length; i++) {
-            Parameter parameter = parameters[i];
-            if (i == parameters.length - 1 && parameter.isVarArgs()) {
-                Class<?> componentType = parameter.getType().getComponentType();
-                for (int j = i; j < args.length; j++) {
-                    Object arg = args[j];
-                    Checker.preCheckedCast(componentType, arg, false, false, false);
-                }
-            } else {
-                Object arg = args[i];
-                Checker.preCheckedCast(parameter.getType(), arg, false, false, false);
-            }
-        }
-    }
-
     /**
      * Check if the specified method defined on the receiver is synthetic.
      *
@@ -534,7 +393,7 @@ final class SandboxInterceptor extends GroovyInterceptor {
      * that method call since we handle known cases, and we specifically do not want missing properties to be rejected
      * because of the existence of the method.
      */
-    private static boolean isSyntheticMethod(Object receiver, Method method) {
+    static boolean isSyntheticMethod(Object receiver, Method method) {
         try {
             return receiver.getClass().getDeclaredMethod(method.getName(), String.class, Object.class).isSynthetic();
         } catch (NoSuchMethodException e) {
@@ -552,7 +411,7 @@ final class SandboxInterceptor extends GroovyInterceptor {
         return b.toString();
     }
 
-    private static @CheckForNull MetaMethod findMetaMethod(@NonNull Object receiver, @NonNull String method, @NonNull Object[] args) {
+    static @CheckForNull MetaMethod findMetaMethod(@NonNull Object receiver, @NonNull String method, @NonNull Object[] args) {
         Class<?>[] types = new Class[args.length];
         for (int i = 0; i < types.length; i++) {
             Object arg = args[i];
@@ -566,21 +425,21 @@ final class SandboxInterceptor extends GroovyInterceptor {
         }
     }
 
-    private static boolean permitsFieldGet(@NonNull Whitelist whitelist, @NonNull Field field, @NonNull Object receiver) {
+    static boolean permitsFieldGet(@NonNull Whitelist whitelist, @NonNull Field field, @NonNull Object receiver) {
         if (Modifier.isStatic(field.getModifiers())) {
             return whitelist.permitsStaticFieldGet(field);
         }
         return whitelist.permitsFieldGet(field, receiver);
     }
 
-    private static boolean permitsFieldSet(@NonNull Whitelist whitelist, @NonNull Field field, @NonNull Object receiver, @CheckForNull Object value) {
+    static boolean permitsFieldSet(@NonNull Whitelist whitelist, @NonNull Field field, @NonNull Object receiver, @CheckForNull Object value) {
         if (Modifier.isStatic(field.getModifiers())) {
             return whitelist.permitsStaticFieldSet(field, value);
         }
         return whitelist.permitsFieldSet(field, receiver, value);
     }
 
-    private static boolean permitsMethod(@NonNull Whitelist whitelist, @NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
+    static boolean permitsMethod(@NonNull Whitelist whitelist, @NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
         if (Modifier.isStatic(method.getModifiers())) {
             return whitelist.permitsStaticMethod(method, args);
         }
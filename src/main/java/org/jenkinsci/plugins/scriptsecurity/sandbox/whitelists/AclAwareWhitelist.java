@@ -29,6 +29,7 @@ import hudson.security.ACL;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.List;
 import jenkins.model.Jenkins;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
 
@@ -54,10 +55,31 @@ public class AclAwareWhitelist extends Whitelist {
         this.restricted = restricted;
     }
 
+    List<Whitelist> delegates() {
+        return List.of(unrestricted, restricted);
+    }
+
     private static boolean authenticated() {
         return !ACL.SYSTEM2.equals(Jenkins.getAuthentication2());
     }
 
+    @Override public boolean mayPermit(@NonNull Class<?> declaringClass) {
+        return unrestricted.mayPermit(declaringClass) || restricted.mayPermit(declaringClass);
+    }
+
+    /**
+     * Verdicts depend on the current user only through the restricted whitelist,
+     * so they may be cached for classes whose members it cannot permit.
+     */
+    @Override public boolean isCacheable(@NonNull Class<?> declaringClass) {
+        return unrestricted.isCacheable(declaringClass) && !restricted.mayPermit(declaringClass);
+    }
+
+    @Override public void preload(@NonNull Class<?> declaringClass) {
+        unrestricted.preload(declaringClass);
+        restricted.preload(declaringClass);
+    }
+
     @Override public boolean permitsMethod(@NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
         return unrestricted.permitsMethod(method, receiver, args) || authenticated() && restricted.permitsMethod(method, receiver, args);
     }
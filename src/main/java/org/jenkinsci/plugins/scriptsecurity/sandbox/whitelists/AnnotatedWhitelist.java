@@ -28,7 +28,12 @@ import hudson.Extension;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
 import org.kohsuke.accmod.Restricted;
@@ -44,6 +49,52 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
         super(new Impl(false), new Impl(true));
     }
 
+    private enum Status {UNANNOTATED, RESTRICTED, UNRESTRICTED}
+
+    /**
+     * {@link Whitelisted} status of members, read once for both {@link Impl}s.
+     * Held per declaring class so that it does not keep class loaders from being unloaded.
+     */
+    private static final ClassValue<ConcurrentMap<Member, Status>> STATUSES = new ClassValue<>() {
+        @Override protected ConcurrentMap<Member, Status> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static <M extends AccessibleObject & Member> Status status(@NonNull M member) {
+        return STATUSES.get(member.getDeclaringClass()).computeIfAbsent(member, m -> {
+            Whitelisted ann = member.getAnnotation(Whitelisted.class);
+            if (ann == null) {
+                return Status.UNANNOTATED;
+            }
+            return ann.restricted() ? Status.RESTRICTED : Status.UNRESTRICTED;
+        });
+    }
+
+    /**
+     * Statuses among the declared members of each class, so that classes without {@link Whitelisted} members need not be considered.
+     */
+    private static final ClassValue<Set<Status>> DECLARED = new ClassValue<>() {
+        @Override protected Set<Status> computeValue(Class<?> type) {
+            Set<Status> statuses = EnumSet.noneOf(Status.class);
+            try {
+                for (Method m : type.getDeclaredMethods()) {
+                    statuses.add(status(m));
+                }
+                for (Constructor<?> c : type.getDeclaredConstructors()) {
+                    statuses.add(status(c));
+                }
+                for (Field f : type.getDeclaredFields()) {
+                    statuses.add(status(f));
+                }
+            } catch (LinkageError x) {
+                // Some member refers to a type which cannot be loaded; read annotations as members are checked.
+                return EnumSet.allOf(Status.class);
+            }
+            return statuses;
+        }
+    };
+
     private static final class Impl extends Whitelist {
 
         private final boolean restricted;
@@ -52,12 +103,23 @@ import org.kohsuke.accmod.restrictions.NoExternalUse;
             this.restricted = restricted;
         }
 
-        private boolean allowed(@NonNull AccessibleObject o) {
-            Whitelisted ann = o.getAnnotation(Whitelisted.class);
-            if (ann == null) {
-                return false;
-            }
-            return ann.restricted() == restricted;
+        private <M extends AccessibleObject & Member> boolean allowed(@NonNull M member) {
+            return status(member) == (restricted ? Status.RESTRICTED : Status.UNRESTRICTED);
+        }
+
+        @Override public boolean isCacheable() {
+            return true;
+        }
+
+        /**
+         * Only classes declaring members with the matching annotation, so that others remain {@linkplain #isCacheable(Class) cacheable} for {@link AclAwareWhitelist}.
+         */
+        @Override public boolean mayPermit(@NonNull Class<?> declaringClass) {
+            return DECLARED.get(declaringClass).contains(restricted ? Status.RESTRICTED : Status.UNRESTRICTED);
+        }
+
+        @Override public void preload(@NonNull Class<?> declaringClass) {
+            DECLARED.get(declaringClass);
         }
 
         @Override public boolean permitsMethod(@NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
@@ -37,6 +37,10 @@ import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
  */
 public final class BlanketWhitelist extends Whitelist {
 
+    @Override public boolean isCacheable() {
+        return true;
+    }
+
     @Override public boolean permitsMethod(@NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
         return true;
     }
@@ -24,22 +24,36 @@
 
 package org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
 import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
 
 /**
  * A whitelist based on listing signatures and searching them. Lists of signatures should not change
@@ -60,31 +74,465 @@ public abstract class EnumeratingWhitelist extends Whitelist {
 
     protected abstract List<FieldSignature> staticFieldSignatures();
 
-    private final Predicate<Method> methodCache = cache(this::methodSignatures, MethodSignature::matches);
-    private final Predicate<Constructor<?>> constructorCache = cache(this::newSignatures, NewSignature::matches);
-    private final Predicate<Method> staticMethodCache = cache(this::staticMethodSignatures, MethodSignature::matches);
-    private final Predicate<Field> fieldCache = cache(this::fieldSignatures, FieldSignature::matches);
-    private final Predicate<Field> staticFieldCache = cache(this::staticFieldSignatures, FieldSignature::matches);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private final VerdictCache<Method, MethodSignature> methodCache = new VerdictCache<>(METHOD_TABLES, this::methodSignatures, MethodSignature::matches, Class::getDeclaredMethods, hits, misses);
+    private final VerdictCache<Constructor<?>, NewSignature> constructorCache = new VerdictCache<>(CONSTRUCTOR_TABLES, this::newSignatures, NewSignature::matches, Class::getDeclaredConstructors, hits, misses);
+    private final VerdictCache<Method, MethodSignature> staticMethodCache = new VerdictCache<>(STATIC_METHOD_TABLES, this::staticMethodSignatures, MethodSignature::matches, Class::getDeclaredMethods, hits, misses);
+    private final VerdictCache<Field, FieldSignature> fieldCache = new VerdictCache<>(FIELD_TABLES, this::fieldSignatures, FieldSignature::matches, Class::getDeclaredFields, hits, misses);
+    private final VerdictCache<Field, FieldSignature> staticFieldCache = new VerdictCache<>(STATIC_FIELD_TABLES, this::staticFieldSignatures, FieldSignature::matches, Class::getDeclaredFields, hits, misses);
+
+    private static final Tables METHOD_TABLES = new Tables();
+    private static final Tables CONSTRUCTOR_TABLES = new Tables();
+    private static final Tables STATIC_METHOD_TABLES = new Tables();
+    private static final Tables FIELD_TABLES = new Tables();
+    private static final Tables STATIC_FIELD_TABLES = new Tables();
+
+    /**
+     * Per-class verdicts of each live {@link VerdictCache} for one kind of member, in one {@link ClassValue} shared by all whitelists,
+     * so that whitelists rebuilt on every approval or aggregation do not each register {@link ClassValue}s with every class they check.
+     * Caches are held weakly, so their verdicts go away along with them.
+     */
+    private static final class Tables extends ClassValue<ConcurrentMap<VerdictCache<?, ?>, AtomicReference<?>>> {
+        @Override protected ConcurrentMap<VerdictCache<?, ?>, AtomicReference<?>> computeValue(Class<?> type) {
+            return new MapMaker().weakKeys().makeMap();
+        }
+    }
+
+    /**
+     * Caches verdicts for members of each declaring class.
+     * The first time a class is seen, a table of verdicts for all its declared members is built,
+     * unless no signature mentions the class, in which case all its members are rejected without further lookups.
+     * {@code GroovyCallSiteSelector} returns fresh copies of reflective objects on every call,
+     * so tables are keyed by {@link Member} equality (declaring class, name, and parameter types) rather than identity.
+     * The table is held in {@link Tables} for the declaring class, so it does not keep class loaders from being unloaded,
+     * nor does it keep this whitelist alive.
+     * To compute a verdict, only signatures with the same declaring type and member name (or a wildcard) are consulted.
+     * When a signature is added or removed by {@link #update}, only the table for its declaring type is discarded.
+     */
+    private static final class VerdictCache<M extends AccessibleObject & Member, S extends Signature> implements Predicate<M> {
+
+        private final Tables tables;
+        private final Supplier<List<S>> signatures;
+        private final BiPredicate<S, M> matches;
+        private final Function<Class<?>, M[]> members;
+        private final LongAdder hits, misses;
+        private volatile Index<S> index;
+        /** Incremented after each {@link #update}, once {@link #index} and {@link #changedAt} reflect it. */
+        private volatile long generation;
+        /** Declaring type name to the last {@link #generation} in which one of its signatures was added or removed. */
+        private final ConcurrentMap<String, Long> changedAt = new ConcurrentHashMap<>();
 
-    private static <M extends AccessibleObject, S extends Signature> Predicate<M> cache(Supplier<List<S>> signatures, BiPredicate<S, M> matches) {
         // Unfortunately xxxSignatures() will return empty if called from superclass constructor,
         // since subclass constructors initialize lists, thus the need for Supplier.
         // Would be cleaner for EnumeratingWhitelist to take all signatures in its constructor,
         // and for StaticWhitelist to just be a utility with static constructor methods rather than a subclass.
-        LoadingCache<M, Boolean> cache = Caffeine.newBuilder().weakKeys().build((M m) -> {
-            for (S s : signatures.get()) {
-                if (matches.test(s, m)) {
-                    return true;
+        VerdictCache(Tables tables, Supplier<List<S>> signatures, BiPredicate<S, M> matches, Function<Class<?>, M[]> members, LongAdder hits, LongAdder misses) {
+            this.tables = tables;
+            this.signatures = signatures;
+            this.matches = matches;
+            this.members = members;
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        @SuppressWarnings("unchecked")
+        private AtomicReference<Verdicts<M>> ref(Class<?> type) {
+            ConcurrentMap<VerdictCache<?, ?>, AtomicReference<?>> byCache = tables.get(type);
+            AtomicReference<?> ref = byCache.get(this);
+            if (ref == null) {
+                ref = new AtomicReference<Verdicts<M>>();
+                AtomicReference<?> prior = byCache.putIfAbsent(this, ref);
+                if (prior != null) {
+                    ref = prior;
                 }
             }
-            return false;
-        });
-        return m -> {
-            if (signatures.get().isEmpty()) {
+            return (AtomicReference<Verdicts<M>>) ref;
+        }
+
+        private Index<S> index() {
+            Index<S> i = index;
+            if (i == null) {
+                synchronized (this) {
+                    i = index;
+                    if (i == null) {
+                        index = i = new Index<>(signatures.get());
+                    }
+                }
+            }
+            return i;
+        }
+
+        @Override public boolean test(M m) {
+            Index<S> i = index();
+            if (i.isEmpty()) {
                 return false; // shortcut
             }
-            return cache.get(m);
-        };
+            long g = generation;
+            AtomicReference<Verdicts<M>> ref = ref(m.getDeclaringClass());
+            Verdicts<M> verdicts = ref.get();
+            if (verdicts != null && verdicts.generation == g) {
+                Boolean verdict = verdicts.lookup(m);
+                if (verdict != null) {
+                    hits.increment();
+                    return verdict;
+                }
+            } else {
+                Verdicts<M> stale = verdicts;
+                verdicts = refresh(ref, stale, g, m.getDeclaringClass(), i);
+                if (verdicts != null) {
+                    Boolean verdict = verdicts.lookup(m);
+                    if (verdict != null) {
+                        // Unless the table was kept, it was built for this check.
+                        (stale != null && stale.table == verdicts.table ? hits : misses).increment();
+                        return verdict;
+                    }
+                }
+            }
+            misses.increment();
+            boolean permitted = i.permits(m, matches);
+            if (verdicts != null) {
+                verdicts.table.put(m, permitted);
+            }
+            return permitted;
+        }
+
+        /**
+         * Builds the table for a class seen for the first time,
+         * or brings one built in an earlier generation up to date, keeping it unless the type was changed since.
+         * @return null if verdicts for this type should not be recorded by the current check
+         */
+        private @CheckForNull Verdicts<M> refresh(AtomicReference<Verdicts<M>> ref, @CheckForNull Verdicts<M> verdicts, long g, Class<?> type, Index<S> i) {
+            Verdicts<M> refreshed;
+            if (verdicts == null) {
+                refreshed = build(g, type, i);
+            } else if (verdicts.generation > g) {
+                return null; // another thread already saw a later update than this one
+            } else {
+                Long changed = changedAt.get(getName(type));
+                refreshed = changed != null && changed > verdicts.generation ? build(g, type, i) : new Verdicts<>(g, verdicts.none, verdicts.table);
+            }
+            return ref.compareAndSet(verdicts, refreshed) ? refreshed : null;
+        }
+
+        private Verdicts<M> build(long g, Class<?> type, Index<S> i) {
+            if (!i.declares(getName(type))) {
+                return new Verdicts<>(g, true, new ConcurrentHashMap<>(1));
+            }
+            ConcurrentMap<M, Boolean> table = new ConcurrentHashMap<>();
+            try {
+                for (M m : members.apply(type)) {
+                    table.put(m, i.permits(m, matches));
+                }
+            } catch (LinkageError x) {
+                // Some member refers to a type which cannot be loaded; compute verdicts as members are checked.
+            }
+            return new Verdicts<>(g, false, table);
+        }
+
+        boolean declares(String type) {
+            return index().declares(type);
+        }
+
+        void preload(Class<?> type) {
+            Index<S> i = index();
+            if (i.isEmpty()) {
+                return;
+            }
+            long g = generation;
+            AtomicReference<Verdicts<M>> ref = ref(type);
+            Verdicts<M> verdicts = ref.get();
+            if (verdicts == null || verdicts.generation != g) {
+                refresh(ref, verdicts, g, type, i);
+            }
+        }
+
+        /**
+         * Applies a change to the index, and publishes a changed copy of the signature list,
+         * as other threads may be reading the current one without locking.
+         */
+        synchronized boolean update(S s, boolean add, Consumer<List<S>> publish) {
+            Index<S> i = index();
+            if (add ? !i.add(s) : !i.remove(s)) {
+                return false;
+            }
+            List<S> list = new ArrayList<>(signatures.get());
+            if (add) {
+                list.add(s);
+            } else {
+                list.remove(s);
+            }
+            publish.accept(Collections.unmodifiableList(list));
+            long g = generation + 1;
+            changedAt.put(s.declaringType(), g);
+            generation = g;
+            return true;
+        }
+
+    }
+
+    /**
+     * Verdicts for members of one declaring class, valid as of some {@link VerdictCache#generation}.
+     */
+    private static final class Verdicts<M> {
+
+        final long generation;
+        /** Whether no signature mentions the declaring class at all. */
+        final boolean none;
+        final ConcurrentMap<M, Boolean> table;
+
+        Verdicts(long generation, boolean none, ConcurrentMap<M, Boolean> table) {
+            this.generation = generation;
+            this.none = none;
+            this.table = table;
+        }
+
+        @CheckForNull Boolean lookup(M m) {
+            return none ? Boolean.FALSE : table.get(m);
+        }
+
+    }
+
+    /**
+     * Signatures grouped by declaring type and member name, so that lookup cost does not depend on the size of the whitelist.
+     * Overloads sharing a name are then told apart by the {@code matches} method of each signature type, which compares arity first.
+     * Lists of candidates are never modified once published, so lookups need no locking while {@link VerdictCache#update} runs.
+     */
+    private static final class Index<S extends Signature> {
+
+        private final ConcurrentMap<String, ConcurrentMap<String, List<S>>> byTypeAndName = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, List<S>> wildcardsByType = new ConcurrentHashMap<>();
+        private volatile int size;
+
+        Index(List<S> signatures) {
+            for (S s : signatures) {
+                add(s);
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean declares(String type) {
+            return byTypeAndName.containsKey(type) || wildcardsByType.containsKey(type);
+        }
+
+        private @CheckForNull ConcurrentMap<String, List<S>> bucketsFor(S s, boolean create) {
+            if (s.isWildcard()) {
+                return wildcardsByType;
+            }
+            return create ? byTypeAndName.computeIfAbsent(s.declaringType(), k -> new ConcurrentHashMap<>()) : byTypeAndName.get(s.declaringType());
+        }
+
+        private String keyFor(S s) {
+            return s.isWildcard() ? s.declaringType() : s.memberName();
+        }
+
+        /** Not thread-safe with respect to other modifications. */
+        boolean add(S s) {
+            ConcurrentMap<String, List<S>> buckets = bucketsFor(s, true);
+            String key = keyFor(s);
+            List<S> candidates = buckets.get(key);
+            if (candidates != null && candidates.contains(s)) {
+                return false;
+            }
+            List<S> replacement = new ArrayList<>(candidates == null ? 1 : candidates.size() + 1);
+            if (candidates != null) {
+                replacement.addAll(candidates);
+            }
+            replacement.add(s);
+            buckets.put(key, replacement);
+            size++;
+            return true;
+        }
+
+        /** Not thread-safe with respect to other modifications. */
+        boolean remove(S s) {
+            ConcurrentMap<String, List<S>> buckets = bucketsFor(s, false);
+            if (buckets == null) {
+                return false;
+            }
+            String key = keyFor(s);
+            List<S> candidates = buckets.get(key);
+            if (candidates == null || !candidates.contains(s)) {
+                return false;
+            }
+            List<S> replacement = new ArrayList<>(candidates);
+            replacement.remove(s);
+            if (replacement.isEmpty()) {
+                buckets.remove(key);
+                if (buckets.isEmpty() && !s.isWildcard()) {
+                    byTypeAndName.remove(s.declaringType());
+                }
+            } else {
+                buckets.put(key, replacement);
+            }
+            size--;
+            return true;
+        }
+
+        <M extends Member> boolean permits(M m, BiPredicate<S, M> matches) {
+            String type = getName(m.getDeclaringClass());
+            Map<String, List<S>> byName = byTypeAndName.get(type);
+            if (byName != null && anyMatches(byName.get(m.getName()), m, matches)) {
+                return true;
+            }
+            return anyMatches(wildcardsByType.get(type), m, matches);
+        }
+
+        private static <S, M> boolean anyMatches(@CheckForNull List<S> candidates, M m, BiPredicate<S, M> matches) {
+            if (candidates != null) {
+                for (S s : candidates) {
+                    if (matches.test(s, m)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Adds a signature to, or removes it from, the appropriate {@code xxxSignatures()} list
+     * while this whitelist may be in use by other threads.
+     * The list is never modified in place: a changed copy is passed to {@link #publish}.
+     * Only cached verdicts for members of the signature's declaring type are discarded.
+     * @return false if the signature was already present (when adding) or absent (when removing)
+     */
+    final boolean update(@NonNull Signature s, boolean add) {
+        if (!apply(s, add)) {
+            return false;
+        }
+        invalidateCachedVerdicts(Set.of(s.declaringType()));
+        return true;
+    }
+
+    /**
+     * Like {@link #update(Signature, boolean)} but leaves it to the caller to {@linkplain #invalidateCachedVerdicts invalidate} cached verdicts,
+     * so that several changes can be applied at once.
+     */
+    final boolean apply(@NonNull Signature s, boolean add) {
+        boolean changed;
+        if (s instanceof StaticMethodSignature) {
+            changed = staticMethodCache.update((MethodSignature) s, add, l -> publish(s, l));
+        } else if (s instanceof MethodSignature) {
+            changed = methodCache.update((MethodSignature) s, add, l -> publish(s, l));
+        } else if (s instanceof StaticFieldSignature) {
+            changed = staticFieldCache.update((FieldSignature) s, add, l -> publish(s, l));
+        } else if (s instanceof FieldSignature) {
+            changed = fieldCache.update((FieldSignature) s, add, l -> publish(s, l));
+        } else {
+            changed = constructorCache.update((NewSignature) s, add, l -> publish(s, l));
+        }
+        return changed;
+    }
+
+    /**
+     * Replaces the {@code xxxSignatures()} list for signatures of the same kind as {@code s}, for {@link #update}.
+     * The replacement must be visible to other threads once this returns.
+     */
+    void publish(@NonNull Signature s, @NonNull List<? extends Signature> signatures) {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support updates");
+    }
+
+    /**
+     * Number of checks answered from the verdict cache since this whitelist was created.
+     */
+    @Restricted(NoExternalUse.class) // diagnostics, tests
+    public final long getCacheHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Number of checks which had to search the signatures since this whitelist was created.
+     */
+    @Restricted(NoExternalUse.class) // diagnostics, tests
+    public final long getCacheMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Combines the signatures of several whitelists, so that a member is looked up once rather than once per whitelist.
+     * The result does not reflect later {@linkplain StaticWhitelist#addSignature changes} to the originals.
+     */
+    @Restricted(NoExternalUse.class) // Whitelist.all
+    public static @NonNull EnumeratingWhitelist merge(@NonNull Collection<? extends EnumeratingWhitelist> whitelists) {
+        return new Merged(whitelists);
+    }
+
+    private static final class Merged extends EnumeratingWhitelist {
+
+        private final List<MethodSignature> methodSignatures = new ArrayList<>();
+        private final List<NewSignature> newSignatures = new ArrayList<>();
+        private final List<MethodSignature> staticMethodSignatures = new ArrayList<>();
+        private final List<FieldSignature> fieldSignatures = new ArrayList<>();
+        private final List<FieldSignature> staticFieldSignatures = new ArrayList<>();
+        private final String description;
+
+        Merged(Collection<? extends EnumeratingWhitelist> whitelists) {
+            for (EnumeratingWhitelist w : whitelists) {
+                methodSignatures.addAll(w.methodSignatures());
+                newSignatures.addAll(w.newSignatures());
+                staticMethodSignatures.addAll(w.staticMethodSignatures());
+                fieldSignatures.addAll(w.fieldSignatures());
+                staticFieldSignatures.addAll(w.staticFieldSignatures());
+            }
+            description = "merged" + whitelists;
+        }
+
+        @Override protected List<MethodSignature> methodSignatures() {
+            return methodSignatures;
+        }
+
+        @Override protected List<NewSignature> newSignatures() {
+            return newSignatures;
+        }
+
+        @Override protected List<MethodSignature> staticMethodSignatures() {
+            return staticMethodSignatures;
+        }
+
+        @Override protected List<FieldSignature> fieldSignatures() {
+            return fieldSignatures;
+        }
+
+        @Override protected List<FieldSignature> staticFieldSignatures() {
+            return staticFieldSignatures;
+        }
+
+        @Override public String toString() {
+            return description;
+        }
+
+    }
+
+    /**
+     * Verdicts depend only on the signature lists, which should not change from invocation to invocation.
+     */
+    @Override public boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * Checks whether any signature, perhaps a wildcard, names the class as its declaring type.
+     */
+    @Override public boolean mayPermit(@NonNull Class<?> declaringClass) {
+        String type = getName(declaringClass);
+        return methodCache.declares(type) || staticMethodCache.declares(type) || constructorCache.declares(type) || fieldCache.declares(type) || staticFieldCache.declares(type);
+    }
+
+    /**
+     * Builds the verdict tables for the class.
+     */
+    @Override public void preload(@NonNull Class<?> declaringClass) {
+        methodCache.preload(declaringClass);
+        staticMethodCache.preload(declaringClass);
+        constructorCache.preload(declaringClass);
+        fieldCache.preload(declaringClass);
+        staticFieldCache.preload(declaringClass);
     }
 
     @Override public final boolean permitsMethod(@NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
@@ -116,14 +564,16 @@ public abstract class EnumeratingWhitelist extends Whitelist {
     }
 
     public static @NonNull String getName(@NonNull Class<?> c) {
-        Class<?> e = c.getComponentType();
-        if (e == null) {
-            return c.getName();
-        } else {
-            return getName(e) + "[]";
-        }
+        return c.isArray() ? ARRAY_NAMES.get(c) : c.getName();
     }
 
+    /** Names of array types, which unlike {@link Class#getName} are not otherwise cached. */
+    private static final ClassValue<String> ARRAY_NAMES = new ClassValue<>() {
+        @Override protected String computeValue(Class<?> c) {
+            return getName(c.getComponentType()) + "[]";
+        }
+    };
+
     public static @NonNull String getName(@CheckForNull Object o) {
         return o == null ? "null" : getName(o.getClass());
     }
@@ -133,27 +583,67 @@ public abstract class EnumeratingWhitelist extends Whitelist {
     }
 
     public static abstract class Signature implements Comparable<Signature> {
+        // Signatures are immutable, so their canonical forms are computed once; racing threads would compute equal values.
+        private String string, part;
+        private int hash;
+
         /** Form as in {@link StaticWhitelist} entries. */
-        @Override public abstract String toString();
+        @Override public String toString() {
+            String s = string;
+            if (s == null) {
+                string = s = kind() + ' ' + signaturePart();
+            }
+            return s;
+        }
+
+        /** First token of {@link #toString}, such as {@code method}. */
+        abstract String kind();
 
-        abstract String signaturePart();
+        final String signaturePart() {
+            String p = part;
+            if (p == null) {
+                part = p = computeSignaturePart();
+            }
+            return p;
+        }
+
+        /** {@link #toString} without the {@link #kind}. */
+        abstract String computeSignaturePart();
+        /** Name of the declaring type, in the form produced by {@link #getName(Class)}. */
+        abstract String declaringType();
+        /** Name of the member, as in {@link Member#getName}, or {@code *} for a wildcard. */
+        abstract String memberName();
         @Override public int compareTo(Signature o) {
             int r = signaturePart().compareTo(o.signaturePart());
             return r != 0 ? r : toString().compareTo(o.toString());
         }
         @Override public boolean equals(Object obj) {
-            return obj != null && obj.getClass() == getClass() && toString().equals(obj.toString());
+            return obj == this || obj != null && obj.getClass() == getClass() && obj.hashCode() == hashCode() && toString().equals(obj.toString());
         }
         @Override public int hashCode() {
-            return toString().hashCode();
+            int h = hash;
+            if (h == 0) {
+                hash = h = toString().hashCode();
+            }
+            return h;
+        }
+        final boolean exists() throws Exception {
+            return exists(EnumeratingWhitelist.class.getClassLoader());
         }
-        abstract boolean exists() throws Exception;
+        /**
+         * Checks whether this signature refers to a real member; for methods, one which is not an override.
+         * @param loader used to load the types mentioned, such as one which can see other plugins
+         */
+        abstract boolean exists(ClassLoader loader) throws Exception;
         /** opposite of {@link #getName(Class)} */
         static Class<?> type(String name) throws Exception {
+            return type(name, EnumeratingWhitelist.class.getClassLoader());
+        }
+        static Class<?> type(String name, ClassLoader loader) throws Exception {
             // ClassUtils.getClass is too lax: permits Outer.Inner where we require Outer$Inner.
             if (name.endsWith("[]")) {
                 // https://stackoverflow.com/q/1679421/12916; TODO Java 12+ use Class.arrayType
-                return Array.newInstance(type(name.substring(0, name.length() - 2)), 0).getClass();
+                return Array.newInstance(type(name.substring(0, name.length() - 2), loader), 0).getClass();
             }
             switch (name) {
             case "boolean":
@@ -175,13 +665,13 @@ public abstract class EnumeratingWhitelist extends Whitelist {
             case "void":
                 return void.class;
             default:
-                return Class.forName(name);
+                return Class.forName(name, false, loader);
             }
         }
-        final Class<?>[] types(String[] names) throws Exception {
-            Class<?>[] r = new Class<?>[names.length];
-            for (int i = 0; i < names.length; i++) {
-                r[i] = type(names[i]);
+        final Class<?>[] types(List<String> names, ClassLoader loader) throws Exception {
+            Class<?>[] r = new Class<?>[names.size()];
+            for (int i = 0; i < r.length; i++) {
+                r[i] = type(names.get(i), loader);
             }
             return r;
         }
@@ -191,14 +681,57 @@ public abstract class EnumeratingWhitelist extends Whitelist {
         }
     }
 
+    /**
+     * Pools for the names and parameter lists held by signatures, shared by all whitelists,
+     * since approved and plugin whitelists repeat the same few types many thousands of times.
+     * Weak, so an entry goes away along with the last signature using it.
+     */
+    private static final Interner<String> NAMES = Interners.newWeakInterner();
+    private static final Interner<List<String>> TYPE_LISTS = Interners.newWeakInterner();
+
+    static String intern(String name) {
+        return NAMES.intern(name);
+    }
+
+    static List<String> intern(String[] types) {
+        if (types.length == 0) {
+            return List.of();
+        }
+        String[] names = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            names[i] = intern(types[i]);
+        }
+        return TYPE_LISTS.intern(List.of(names));
+    }
+
     // Utility methods for creating canonical string representations of the signature
-    static StringBuilder joinWithSpaces(StringBuilder b, String[] types) {
+    static StringBuilder joinWithSpaces(StringBuilder b, List<String> types) {
         for (String type : types) {
             b.append(' ').append(type);
         }
         return b;
     }
 
+    /** Like {@code names.equals(asList(argumentTypes(types)))} but without allocating an array. */
+    static boolean sameTypes(List<String> names, Class<?>[] types) {
+        if (names.size() != types.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (!names.get(i).equals(getName(types[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static StringBuilder joinWithSpaces(StringBuilder b, Class<?>[] types) {
+        for (Class<?> type : types) {
+            b.append(' ').append(getName(type));
+        }
+        return b;
+    }
+
     static String[] argumentTypes(Class<?>[] argumentTypes) {
         String[] s = new String[argumentTypes.length];
         for (int i = 0; i < argumentTypes.length; i++) {
@@ -216,12 +749,12 @@ public abstract class EnumeratingWhitelist extends Whitelist {
 
     /** Canonical name for a method call. */
     static String canonicalMethodString(@NonNull Method method) {
-        return joinWithSpaces(new StringBuilder(getName(method.getDeclaringClass())).append(' ').append(method.getName()), argumentTypes(method.getParameterTypes())).toString();
+        return joinWithSpaces(new StringBuilder(getName(method.getDeclaringClass())).append(' ').append(method.getName()), method.getParameterTypes()).toString();
     }
 
     /** Canonical name for a constructor call. */
     static String canonicalConstructorString(@NonNull Constructor cons) {
-        return joinWithSpaces(new StringBuilder(getName(cons.getDeclaringClass())), argumentTypes(cons.getParameterTypes())).toString();
+        return joinWithSpaces(new StringBuilder(getName(cons.getDeclaringClass())), cons.getParameterTypes()).toString();
     }
 
     static String canonicalMethodSig(@NonNull Method method) {
@@ -246,41 +779,47 @@ public abstract class EnumeratingWhitelist extends Whitelist {
 
     public static class MethodSignature extends Signature {
         final String receiverType, method;
-        final String[] argumentTypes;
+        final List<String> argumentTypes;
         public MethodSignature(String receiverType, String method, String... argumentTypes) {
-            this.receiverType = receiverType;
-            this.method = method;
-            this.argumentTypes = argumentTypes.clone();
+            this.receiverType = intern(receiverType);
+            this.method = intern(method);
+            this.argumentTypes = intern(argumentTypes);
         }
         public MethodSignature(Class<?> receiverType, String method, Class<?>... argumentTypes) {
             this(getName(receiverType), method, argumentTypes(argumentTypes));
         }
         boolean matches(Method m) {
-            return is(method, m.getName()) && getName(m.getDeclaringClass()).equals(receiverType) && Arrays.equals(argumentTypes(m.getParameterTypes()), argumentTypes);
+            return m.getParameterCount() == argumentTypes.size() && is(method, m.getName()) && getName(m.getDeclaringClass()).equals(receiverType) && sameTypes(argumentTypes, m.getParameterTypes());
         }
-        @Override public String toString() {
-            return "method " + signaturePart();
+        @Override String declaringType() {
+            return receiverType;
         }
-        @Override String signaturePart() {
+        @Override String memberName() {
+            return method;
+        }
+        @Override String kind() {
+            return "method";
+        }
+        @Override String computeSignaturePart() {
             return joinWithSpaces(new StringBuilder(receiverType).append(' ').append(method), argumentTypes).toString();
         }
-        @Override boolean exists() throws Exception {
-            return exists(type(receiverType), true);
+        @Override boolean exists(ClassLoader loader) throws Exception {
+            return exists(type(receiverType, loader), true, loader);
         }
         // Cf. GroovyCallSiteSelector.visitTypes.
         @SuppressWarnings("InfiniteRecursion")
-        private boolean exists(Class<?> c, boolean start) throws Exception {
+        private boolean exists(Class<?> c, boolean start, ClassLoader loader) throws Exception {
             Class<?> s = c.getSuperclass();
-            if (s != null && exists(s, false)) {
+            if (s != null && exists(s, false, loader)) {
                 return !start;
             }
             for (Class<?> i : c.getInterfaces()) {
-                if (exists(i, false)) {
+                if (exists(i, false, loader)) {
                     return !start;
                 }
             }
             try {
-                return !Modifier.isStatic(c.getDeclaredMethod(method, types(argumentTypes)).getModifiers());
+                return !Modifier.isStatic(c.getDeclaredMethod(method, types(argumentTypes, loader)).getModifiers());
             } catch (NoSuchMethodException x) {
                 return false;
             }
@@ -296,12 +835,12 @@ public abstract class EnumeratingWhitelist extends Whitelist {
         StaticMethodSignature(String receiverType, String method, String... argumentTypes) {
             super(receiverType, method, argumentTypes);
         }
-        @Override public String toString() {
-            return "staticMethod " + signaturePart();
+        @Override String kind() {
+            return "staticMethod";
         }
-        @Override boolean exists() throws Exception {
+        @Override boolean exists(ClassLoader loader) throws Exception {
             try {
-                return Modifier.isStatic(type(receiverType).getDeclaredMethod(method, types(argumentTypes)).getModifiers());
+                return Modifier.isStatic(type(receiverType, loader).getDeclaredMethod(method, types(argumentTypes, loader)).getModifiers());
             } catch (NoSuchMethodException x) {
                 return false;
             }
@@ -310,26 +849,32 @@ public abstract class EnumeratingWhitelist extends Whitelist {
 
     public static final class NewSignature extends Signature  {
         private final String type;
-        private final String[] argumentTypes;
+        final List<String> argumentTypes;
         public NewSignature(String type, String... argumentTypes) {
-            this.type = type;
-            this.argumentTypes = argumentTypes.clone();
+            this.type = intern(type);
+            this.argumentTypes = intern(argumentTypes);
         }
         public NewSignature(Class<?> type, Class<?>... argumentTypes) {
             this(getName(type), argumentTypes(argumentTypes));
         }
         boolean matches(Constructor<?> c) {
-            return getName(c.getDeclaringClass()).equals(type) && Arrays.equals(argumentTypes(c.getParameterTypes()), argumentTypes);
+            return c.getParameterCount() == argumentTypes.size() && getName(c.getDeclaringClass()).equals(type) && sameTypes(argumentTypes, c.getParameterTypes());
+        }
+        @Override String declaringType() {
+            return type;
+        }
+        @Override String memberName() {
+            return type; // like Constructor.getName
         }
-        @Override String signaturePart() {
+        @Override String computeSignaturePart() {
             return joinWithSpaces(new StringBuilder(type), argumentTypes).toString();
         }
-        @Override public String toString() {
-            return "new " + signaturePart();
+        @Override String kind() {
+            return "new";
         }
-        @Override boolean exists() throws Exception {
+        @Override boolean exists(ClassLoader loader) throws Exception {
             try {
-                type(type).getDeclaredConstructor(types(argumentTypes));
+                type(type, loader).getDeclaredConstructor(types(argumentTypes, loader));
                 return true;
             } catch (NoSuchMethodException x) {
                 return false;
@@ -340,8 +885,8 @@ public abstract class EnumeratingWhitelist extends Whitelist {
     public static class FieldSignature extends Signature {
         final String type, field;
         public FieldSignature(String type, String field) {
-            this.type = type;
-            this.field = field;
+            this.type = intern(type);
+            this.field = intern(field);
         }
         public FieldSignature(Class<?> type, String field) {
             this(getName(type), field);
@@ -349,15 +894,21 @@ public abstract class EnumeratingWhitelist extends Whitelist {
         boolean matches(Field f) {
             return is(field, f.getName()) && getName(f.getDeclaringClass()).equals(type);
         }
-        @Override String signaturePart() {
+        @Override String declaringType() {
+            return type;
+        }
+        @Override String memberName() {
+            return field;
+        }
+        @Override String computeSignaturePart() {
             return type + ' ' + field;
         }
-        @Override public String toString() {
-            return "field " + signaturePart();
+        @Override String kind() {
+            return "field";
         }
-        @Override boolean exists() throws Exception {
+        @Override boolean exists(ClassLoader loader) throws Exception {
             try {
-                return !Modifier.isStatic(type(type).getField(field).getModifiers());
+                return !Modifier.isStatic(type(type, loader).getField(field).getModifiers());
             } catch (NoSuchFieldException x) {
                 return false;
             }
@@ -373,12 +924,12 @@ public abstract class EnumeratingWhitelist extends Whitelist {
         StaticFieldSignature(String type, String field) {
             super(type, field);
         }
-        @Override public String toString() {
-            return "staticField " + signaturePart();
+        @Override String kind() {
+            return "staticField";
         }
-        @Override boolean exists() throws Exception {
+        @Override boolean exists(ClassLoader loader) throws Exception {
             try {
-                return Modifier.isStatic(type(type).getField(field).getModifiers());
+                return Modifier.isStatic(type(type, loader).getField(field).getModifiers());
             } catch (NoSuchFieldException x) {
                 return false;
             }
@@ -0,0 +1,259 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist.FieldSignature;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist.MethodSignature;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist.NewSignature;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist.Signature;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist.StaticFieldSignature;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist.StaticMethodSignature;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Binary form of a {@link StaticWhitelist} definition, generated at build time so that loading it needs no parsing.
+ * Each distinct type or member name is stored once, and signatures refer to it by index.
+ * <p>The text definition remains the source of truth:
+ * the binary form records a checksum of the text it was generated from, and is ignored if that no longer matches.
+ * Only the bundled {@link StaticWhitelist#stockWhitelists} are looked up in binary form;
+ * definitions from other plugins are always parsed from text, sparing them a failed lookup and a second read.
+ */
+@Restricted(NoExternalUse.class)
+public final class PrecompiledWhitelist {
+
+    private static final Logger LOGGER = Logger.getLogger(PrecompiledWhitelist.class.getName());
+
+    /** Appended to the name of a text definition to find its binary form. */
+    static final String SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x53574C31;
+
+    private static final byte METHOD = 0, NEW = 1, STATIC_METHOD = 2, FIELD = 3, STATIC_FIELD = 4;
+
+    private PrecompiledWhitelist() {}
+
+    /**
+     * Writes the binary form of each text definition given as an argument next to it,
+     * and reads it back, failing if it does not load, so that a broken build step is noticed.
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("no whitelist definitions given");
+        }
+        for (String arg : args) {
+            byte[] text = Files.readAllBytes(Paths.get(arg));
+            Path compiled = Paths.get(arg + SUFFIX);
+            try (OutputStream out = Files.newOutputStream(compiled)) {
+                compile(text, out);
+            }
+            try (InputStream is = Files.newInputStream(compiled)) {
+                if (!load(text, is, new StaticWhitelist(Collections.emptyList()))) {
+                    throw new IOException("Could not load " + compiled + " back");
+                }
+            }
+        }
+    }
+
+    static void compile(@NonNull byte[] text, @NonNull OutputStream out) throws IOException {
+        List<Signature> signatures = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = StaticWhitelist.filter(line);
+                if (line != null) {
+                    signatures.add(StaticWhitelist.parse(line));
+                }
+            }
+        }
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for (Signature s : signatures) {
+            strings.putIfAbsent(s.declaringType(), strings.size());
+            strings.putIfAbsent(s.memberName(), strings.size());
+            for (String type : argumentTypes(s)) {
+                strings.putIfAbsent(type, strings.size());
+            }
+        }
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeLong(checksum(text));
+        data.writeInt(strings.size());
+        for (String s : strings.keySet()) {
+            data.writeUTF(s);
+        }
+        data.writeInt(signatures.size());
+        for (Signature s : signatures) {
+            byte kind = kind(s);
+            data.writeByte(kind);
+            data.writeInt(strings.get(s.declaringType()));
+            if (kind != NEW) {
+                data.writeInt(strings.get(s.memberName()));
+            }
+            if (kind != FIELD && kind != STATIC_FIELD) {
+                List<String> argumentTypes = argumentTypes(s);
+                data.writeInt(argumentTypes.size());
+                for (String type : argumentTypes) {
+                    data.writeInt(strings.get(type));
+                }
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Adds the signatures from a binary form to a whitelist.
+     * @return false if the binary form was not generated from this text, in which case nothing is added
+     */
+    static boolean load(@NonNull byte[] text, @NonNull InputStream compiled, @NonNull StaticWhitelist into) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(compiled));
+        if (data.readInt() != MAGIC || data.readLong() != checksum(text)) {
+            return false;
+        }
+        String[] strings = new String[data.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = data.readUTF();
+        }
+        int count = data.readInt();
+        List<Signature> signatures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte kind = data.readByte();
+            String type = strings[data.readInt()];
+            switch (kind) {
+                case METHOD:
+                    signatures.add(new MethodSignature(type, strings[data.readInt()], readArgumentTypes(data, strings)));
+                    break;
+                case NEW:
+                    signatures.add(new NewSignature(type, readArgumentTypes(data, strings)));
+                    break;
+                case STATIC_METHOD:
+                    signatures.add(new StaticMethodSignature(type, strings[data.readInt()], readArgumentTypes(data, strings)));
+                    break;
+                case FIELD:
+                    signatures.add(new FieldSignature(type, strings[data.readInt()]));
+                    break;
+                case STATIC_FIELD:
+                    signatures.add(new StaticFieldSignature(type, strings[data.readInt()]));
+                    break;
+                default:
+                    throw new IOException("unknown signature kind " + kind);
+            }
+        }
+        for (Signature s : signatures) {
+            into.add(s);
+        }
+        return true;
+    }
+
+    /**
+     * Loads the binary forms of one or more bundled text definitions into a single whitelist.
+     * @return null if any definition lacks an up-to-date binary form, so the text should be parsed instead
+     */
+    static @CheckForNull StaticWhitelist load(@NonNull URL... definitions) {
+        try {
+            StaticWhitelist whitelist = new StaticWhitelist(Collections.emptyList());
+            for (URL definition : definitions) {
+                byte[] text;
+                try (InputStream is = definition.openStream()) {
+                    text = is.readAllBytes();
+                }
+                try (InputStream is = URI.create(definition.toExternalForm() + SUFFIX).toURL().openStream()) {
+                    if (!load(text, is, whitelist)) {
+                        LOGGER.warning(() -> "Ignoring outdated binary form of " + definition + "; parsing the text instead");
+                        return null;
+                    }
+                }
+            }
+            return whitelist;
+        } catch (IOException | IllegalArgumentException x) {
+            LOGGER.log(Level.WARNING, "No usable binary form of " + List.of(definitions) + "; parsing the text instead", x);
+            return null;
+        }
+    }
+
+    private static byte kind(Signature s) {
+        if (s instanceof StaticMethodSignature) {
+            return STATIC_METHOD;
+        } else if (s instanceof MethodSignature) {
+            return METHOD;
+        } else if (s instanceof StaticFieldSignature) {
+            return STATIC_FIELD;
+        } else if (s instanceof FieldSignature) {
+            return FIELD;
+        } else {
+            return NEW;
+        }
+    }
+
+    private static List<String> argumentTypes(Signature s) {
+        if (s instanceof MethodSignature) {
+            return ((MethodSignature) s).argumentTypes;
+        } else if (s instanceof NewSignature) {
+            return ((NewSignature) s).argumentTypes;
+        } else {
+            return List.of();
+        }
+    }
+
+    private static String[] readArgumentTypes(DataInputStream data, String[] strings) throws IOException {
+        String[] types = new String[data.readInt()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = strings[data.readInt()];
+        }
+        return types;
+    }
+
+    private static long checksum(byte[] text) {
+        CRC32 crc = new CRC32();
+        crc.update(text);
+        return crc.getValue();
+    }
+
+}
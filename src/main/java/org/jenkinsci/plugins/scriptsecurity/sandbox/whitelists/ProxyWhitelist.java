@@ -24,43 +24,236 @@
 
 package org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists;
 
+import com.google.common.collect.MapMaker;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
 
 /**
  * Aggregates several whitelists.
+ * Verdicts of {@linkplain Whitelist#isCacheable cacheable} delegates are combined and cached,
+ * until {@link Whitelist#invalidateCachedVerdicts} is called for all types or for the declaring type;
+ * other delegates are consulted on each call.
+ * In either case only delegates which {@linkplain Whitelist#mayPermit may permit} members of the declaring class are consulted.
  */
 public class ProxyWhitelist extends Whitelist {
 
     private volatile Whitelist[] delegates;
 
+    private volatile @CheckForNull Plan plan;
+
     public ProxyWhitelist(Collection<? extends Whitelist> delegates) {
-        reset(delegates);
+        // Not reset: nothing can have been cached yet, so no need to invalidate other caches.
+        this.delegates = delegates.toArray(Whitelist[]::new);
     }
 
     public final void reset(Collection<? extends Whitelist> delegates) {
         this.delegates = delegates.toArray(Whitelist[]::new);
+        // Proxies containing this one may have routed any class according to the old delegates.
+        invalidateCachedVerdicts();
     }
 
     public ProxyWhitelist(Whitelist... delegates) {
         this(Arrays.asList(delegates));
     }
 
+    List<Whitelist> delegates() {
+        return List.of(delegates);
+    }
+
     /**
      * Called before {@link #permitsMethod} and similar methods.
      * May call {@link #reset(Collection)}.
      */
     protected void beforePermits() {}
 
+    /**
+     * Delegates sorted by whether they are cacheable.
+     * Since a delegate may itself be a {@link ProxyWhitelist} which is {@linkplain #reset(Collection) reset} later,
+     * this is recomputed whenever {@linkplain Whitelist#changedSince(long) all cached verdicts} are discarded.
+     */
+    private static final class Plan {
+
+        /** The latest {@link Whitelist#generation} as of which this plan is known to be valid. */
+        volatile long generation;
+        final Whitelist[] cacheable;
+        final Whitelist[] others;
+
+        Plan(long generation, Whitelist[] delegates) {
+            this.generation = generation;
+            List<Whitelist> cacheable = new ArrayList<>();
+            List<Whitelist> others = new ArrayList<>();
+            for (Whitelist delegate : delegates) {
+                (delegate.isCacheable() ? cacheable : others).add(delegate);
+            }
+            this.cacheable = cacheable.toArray(Whitelist[]::new);
+            this.others = others.toArray(Whitelist[]::new);
+        }
+
+        /**
+         * Looks up the tables for a class, rebuilding them only if verdicts for its members were discarded since they were built.
+         */
+        Tables tables(Class<?> type) {
+            long g = generation;
+            ConcurrentMap<Plan, Tables> byPlan = TABLES.get(type);
+            Tables t = byPlan.get(this);
+            if (t != null && t.generation != g) {
+                if (changedSince(type, t.generation)) {
+                    Tables fresh = new Tables(type, g, cacheable, others);
+                    t = byPlan.replace(this, t, fresh) ? fresh : byPlan.get(this);
+                } else {
+                    t.generation = g;
+                }
+            }
+            if (t == null) {
+                t = new Tables(type, g, cacheable, others);
+                Tables prior = byPlan.putIfAbsent(this, t);
+                if (prior != null) {
+                    t = prior;
+                }
+            }
+            return t;
+        }
+
+    }
+
+    /**
+     * Per-class state of each live {@link Plan}, in one {@link ClassValue} shared by all proxies,
+     * so that short-lived proxies, such as one per script run, do not each register {@link ClassValue}s with every class they touch.
+     * Plans are held weakly, so their tables go away along with them.
+     */
+    private static final ClassValue<ConcurrentMap<Plan, Tables>> TABLES = new ClassValue<>() {
+        @Override protected ConcurrentMap<Plan, Tables> computeValue(Class<?> type) {
+            return new MapMaker().weakKeys().makeMap();
+        }
+    };
+
+    /**
+     * Indices into {@link Plan#cacheable} and {@link Plan#others} of the delegates which may permit members of one class,
+     * and the combined verdicts of the cacheable ones, keyed by {@link Member} equality.
+     * Delegates are referred to by index so that a class never holds a reference to them, such as to a script class loader.
+     */
+    private static final class Tables {
+
+        /** The latest {@link Whitelist#generation} as of which these tables are known to be valid. */
+        volatile long generation;
+        final int[] cacheable;
+        final int[] others;
+        final ConcurrentMap<Method, Boolean> methods = new ConcurrentHashMap<>();
+        final ConcurrentMap<Constructor<?>, Boolean> constructors = new ConcurrentHashMap<>();
+        final ConcurrentMap<Method, Boolean> staticMethods = new ConcurrentHashMap<>();
+        final ConcurrentMap<Field, Boolean> fieldGets = new ConcurrentHashMap<>();
+        final ConcurrentMap<Field, Boolean> fieldSets = new ConcurrentHashMap<>();
+        final ConcurrentMap<Field, Boolean> staticFieldGets = new ConcurrentHashMap<>();
+        final ConcurrentMap<Field, Boolean> staticFieldSets = new ConcurrentHashMap<>();
+
+        Tables(Class<?> type, long generation, Whitelist[] cacheable, Whitelist[] others) {
+            this.generation = generation;
+            this.cacheable = candidates(type, cacheable);
+            this.others = candidates(type, others);
+        }
+
+        private static int[] candidates(Class<?> type, Whitelist[] delegates) {
+            int[] candidates = new int[delegates.length];
+            int count = 0;
+            for (int i = 0; i < delegates.length; i++) {
+                if (delegates[i].mayPermit(type)) {
+                    candidates[count++] = i;
+                }
+            }
+            return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+        }
+
+    }
+
+    private static <M extends Member> boolean record(ConcurrentMap<M, Boolean> verdicts, M m, boolean permitted) {
+        verdicts.put(m, permitted);
+        return permitted;
+    }
+
+    private Plan plan() {
+        // Read the generation first: reset and other changes update state before incrementing it.
+        long g = generation();
+        Plan p = plan;
+        if (p == null || p.generation != g && changedSince(p.generation)) {
+            plan = p = new Plan(g, delegates);
+        } else if (p.generation != g) {
+            p.generation = g; // only verdicts for some types were discarded, which tables check for themselves
+        }
+        return p;
+    }
+
+    /**
+     * Cacheable if all delegates are.
+     */
+    @Override public boolean isCacheable() {
+        return plan().others.length == 0;
+    }
+
+    /**
+     * Cacheable for a class if all delegates which may permit its members are.
+     */
+    @Override public boolean isCacheable(@NonNull Class<?> declaringClass) {
+        Plan p = plan();
+        for (int i : p.tables(declaringClass).others) {
+            if (!p.others[i].isCacheable(declaringClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Preloads delegates which may permit members of the class.
+     */
+    @Override public void preload(@NonNull Class<?> declaringClass) {
+        Plan p = plan();
+        Tables t = p.tables(declaringClass);
+        for (int i : t.cacheable) {
+            p.cacheable[i].preload(declaringClass);
+        }
+        for (int i : t.others) {
+            p.others[i].preload(declaringClass);
+        }
+    }
+
+    /**
+     * Checks whether any delegate may permit members of the class.
+     */
+    @Override public boolean mayPermit(@NonNull Class<?> declaringClass) {
+        Tables t = plan().tables(declaringClass);
+        return t.cacheable.length > 0 || t.others.length > 0;
+    }
+
     @Override public final boolean permitsMethod(@NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
         beforePermits();
-        for (Whitelist delegate : delegates) {
-            if (delegate.permitsMethod(method, receiver, args)) {
+        Plan p = plan();
+        Tables t = p.tables(method.getDeclaringClass());
+        if (t.cacheable.length > 0) {
+            Boolean cached = t.methods.get(method);
+            if (cached == null) {
+                cached = record(t.methods, method, anyPermitsMethod(p.cacheable, t.cacheable, method, receiver, args));
+            }
+            if (cached) {
+                return true;
+            }
+        }
+        return anyPermitsMethod(p.others, t.others, method, receiver, args);
+    }
+
+    private static boolean anyPermitsMethod(Whitelist[] delegates, int[] candidates, Method method, Object receiver, Object[] args) {
+        for (int i : candidates) {
+            if (delegates[i].permitsMethod(method, receiver, args)) {
                 return true;
             }
         }
@@ -69,8 +262,23 @@ public class ProxyWhitelist extends Whitelist {
 
     @Override public final boolean permitsConstructor(@NonNull Constructor<?> constructor, @NonNull Object[] args) {
         beforePermits();
-        for (Whitelist delegate : delegates) {
-            if (delegate.permitsConstructor(constructor, args)) {
+        Plan p = plan();
+        Tables t = p.tables(constructor.getDeclaringClass());
+        if (t.cacheable.length > 0) {
+            Boolean cached = t.constructors.get(constructor);
+            if (cached == null) {
+                cached = record(t.constructors, constructor, anyPermitsConstructor(p.cacheable, t.cacheable, constructor, args));
+            }
+            if (cached) {
+                return true;
+            }
+        }
+        return anyPermitsConstructor(p.others, t.others, constructor, args);
+    }
+
+    private static boolean anyPermitsConstructor(Whitelist[] delegates, int[] candidates, Constructor<?> constructor, Object[] args) {
+        for (int i : candidates) {
+            if (delegates[i].permitsConstructor(constructor, args)) {
                 return true;
             }
         }
@@ -79,8 +287,23 @@ public class ProxyWhitelist extends Whitelist {
 
     @Override public final boolean permitsStaticMethod(@NonNull Method method, @NonNull Object[] args) {
         beforePermits();
-        for (Whitelist delegate : delegates) {
-            if (delegate.permitsStaticMethod(method, args)) {
+        Plan p = plan();
+        Tables t = p.tables(method.getDeclaringClass());
+        if (t.cacheable.length > 0) {
+            Boolean cached = t.staticMethods.get(method);
+            if (cached == null) {
+                cached = record(t.staticMethods, method, anyPermitsStaticMethod(p.cacheable, t.cacheable, method, args));
+            }
+            if (cached) {
+                return true;
+            }
+        }
+        return anyPermitsStaticMethod(p.others, t.others, method, args);
+    }
+
+    private static boolean anyPermitsStaticMethod(Whitelist[] delegates, int[] candidates, Method method, Object[] args) {
+        for (int i : candidates) {
+            if (delegates[i].permitsStaticMethod(method, args)) {
                 return true;
             }
         }
@@ -89,8 +312,23 @@ public class ProxyWhitelist extends Whitelist {
 
     @Override public final boolean permitsFieldGet(@NonNull Field field, @NonNull Object receiver) {
         beforePermits();
-        for (Whitelist delegate : delegates) {
-            if (delegate.permitsFieldGet(field, receiver)) {
+        Plan p = plan();
+        Tables t = p.tables(field.getDeclaringClass());
+        if (t.cacheable.length > 0) {
+            Boolean cached = t.fieldGets.get(field);
+            if (cached == null) {
+                cached = record(t.fieldGets, field, anyPermitsFieldGet(p.cacheable, t.cacheable, field, receiver));
+            }
+            if (cached) {
+                return true;
+            }
+        }
+        return anyPermitsFieldGet(p.others, t.others, field, receiver);
+    }
+
+    private static boolean anyPermitsFieldGet(Whitelist[] delegates, int[] candidates, Field field, Object receiver) {
+        for (int i : candidates) {
+            if (delegates[i].permitsFieldGet(field, receiver)) {
                 return true;
             }
         }
@@ -99,8 +337,23 @@ public class ProxyWhitelist extends Whitelist {
 
     @Override public final boolean permitsFieldSet(@NonNull Field field, @NonNull Object receiver, Object value) {
         beforePermits();
-        for (Whitelist delegate : delegates) {
-            if (delegate.permitsFieldSet(field, receiver, value)) {
+        Plan p = plan();
+        Tables t = p.tables(field.getDeclaringClass());
+        if (t.cacheable.length > 0) {
+            Boolean cached = t.fieldSets.get(field);
+            if (cached == null) {
+                cached = record(t.fieldSets, field, anyPermitsFieldSet(p.cacheable, t.cacheable, field, receiver, value));
+            }
+            if (cached) {
+                return true;
+            }
+        }
+        return anyPermitsFieldSet(p.others, t.others, field, receiver, value);
+    }
+
+    private static boolean anyPermitsFieldSet(Whitelist[] delegates, int[] candidates, Field field, Object receiver, Object value) {
+        for (int i : candidates) {
+            if (delegates[i].permitsFieldSet(field, receiver, value)) {
                 return true;
             }
         }
@@ -109,8 +362,23 @@ public class ProxyWhitelist extends Whitelist {
 
     @Override public final boolean permitsStaticFieldGet(@NonNull Field field) {
         beforePermits();
-        for (Whitelist delegate : delegates) {
-            if (delegate.permitsStaticFieldGet(field)) {
+        Plan p = plan();
+        Tables t = p.tables(field.getDeclaringClass());
+        if (t.cacheable.length > 0) {
+            Boolean cached = t.staticFieldGets.get(field);
+            if (cached == null) {
+                cached = record(t.staticFieldGets, field, anyPermitsStaticFieldGet(p.cacheable, t.cacheable, field));
+            }
+            if (cached) {
+                return true;
+            }
+        }
+        return anyPermitsStaticFieldGet(p.others, t.others, field);
+    }
+
+    private static boolean anyPermitsStaticFieldGet(Whitelist[] delegates, int[] candidates, Field field) {
+        for (int i : candidates) {
+            if (delegates[i].permitsStaticFieldGet(field)) {
                 return true;
             }
         }
@@ -119,8 +387,23 @@ public class ProxyWhitelist extends Whitelist {
 
     @Override public final boolean permitsStaticFieldSet(@NonNull Field field, Object value) {
         beforePermits();
-        for (Whitelist delegate : delegates) {
-            if (delegate.permitsStaticFieldSet(field, value)) {
+        Plan p = plan();
+        Tables t = p.tables(field.getDeclaringClass());
+        if (t.cacheable.length > 0) {
+            Boolean cached = t.staticFieldSets.get(field);
+            if (cached == null) {
+                cached = record(t.staticFieldSets, field, anyPermitsStaticFieldSet(p.cacheable, t.cacheable, field, value));
+            }
+            if (cached) {
+                return true;
+            }
+        }
+        return anyPermitsStaticFieldSet(p.others, t.others, field, value);
+    }
+
+    private static boolean anyPermitsStaticFieldSet(Whitelist[] delegates, int[] candidates, Field field, Object value) {
+        for (int i : candidates) {
+            if (delegates[i].permitsStaticFieldSet(field, value)) {
                 return true;
             }
         }
@@ -40,7 +40,9 @@ import java.util.Arrays;
 import static java.util.Arrays.asList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
@@ -72,11 +74,30 @@ public final class StaticWhitelist extends EnumeratingWhitelist {
             "new org.kohsuke.groovy.sandbox.impl.Checker$ThisConstructorWrapper java.lang.Object[]"
     };
 
-    final List<MethodSignature> methodSignatures = new ArrayList<>();
-    final List<NewSignature> newSignatures = new ArrayList<>();
-    final List<MethodSignature> staticMethodSignatures = new ArrayList<>();
-    final List<FieldSignature> fieldSignatures = new ArrayList<>();
-    final List<FieldSignature> staticFieldSignatures = new ArrayList<>();
+    /**
+     * Whether a class declares any permanently blacklisted member.
+     * Checked before computing a signature, since these checks run on every sandboxed call and nearly always pass.
+     */
+    private static final ClassValue<Boolean> DECLARES_PERMANENTLY_BLACKLISTED = new ClassValue<>() {
+        @Override protected Boolean computeValue(Class<?> type) {
+            String name = getName(type);
+            for (String[] signatures : List.of(PERMANENTLY_BLACKLISTED_METHODS, PERMANENTLY_BLACKLISTED_STATIC_METHODS, PERMANENTLY_BLACKLISTED_CONSTRUCTORS)) {
+                for (String signature : signatures) {
+                    if (signature.split(" ")[1].equals(name)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    };
+
+    // Filled while constructing; afterwards only replaced by publish, since other threads may be reading them without locking.
+    volatile List<MethodSignature> methodSignatures = new ArrayList<>();
+    volatile List<NewSignature> newSignatures = new ArrayList<>();
+    volatile List<MethodSignature> staticMethodSignatures = new ArrayList<>();
+    volatile List<FieldSignature> fieldSignatures = new ArrayList<>();
+    volatile List<FieldSignature> staticFieldSignatures = new ArrayList<>();
 
     public StaticWhitelist(Reader definition) throws IOException {
         BufferedReader br = new BufferedReader(definition);
@@ -116,6 +137,9 @@ public final class StaticWhitelist extends EnumeratingWhitelist {
      * Returns true if the given method is permanently blacklisted in {@link #PERMANENTLY_BLACKLISTED_METHODS}
      */
     public static boolean isPermanentlyBlacklistedMethod(@NonNull Method m) {
+        if (!DECLARES_PERMANENTLY_BLACKLISTED.get(m.getDeclaringClass())) {
+            return false;
+        }
         String signature = canonicalMethodSig(m);
         return asList(PERMANENTLY_BLACKLISTED_METHODS).contains(signature);
     }
@@ -124,6 +148,9 @@ public final class StaticWhitelist extends EnumeratingWhitelist {
      * Returns true if the given method is permanently blacklisted in {@link #PERMANENTLY_BLACKLISTED_STATIC_METHODS}
      */
     public static boolean isPermanentlyBlacklistedStaticMethod(@NonNull Method m) {
+        if (!DECLARES_PERMANENTLY_BLACKLISTED.get(m.getDeclaringClass())) {
+            return false;
+        }
         String signature = canonicalStaticMethodSig(m);
         return asList(PERMANENTLY_BLACKLISTED_STATIC_METHODS).contains(signature);
     }
@@ -132,6 +159,9 @@ public final class StaticWhitelist extends EnumeratingWhitelist {
      * Returns true if the given constructor is permanently blacklisted in {@link #PERMANENTLY_BLACKLISTED_CONSTRUCTORS}
      */
     public static boolean isPermanentlyBlacklistedConstructor(@NonNull Constructor c) {
+        if (!DECLARES_PERMANENTLY_BLACKLISTED.get(c.getDeclaringClass())) {
+            return false;
+        }
         String signature = canonicalConstructorSig(c);
         return asList(PERMANENTLY_BLACKLISTED_CONSTRUCTORS).contains(signature);
     }
@@ -187,7 +217,10 @@ public final class StaticWhitelist extends EnumeratingWhitelist {
     }
 
     private void add(String line) throws IOException {
-        Signature s = parse(line);
+        add(parse(line));
+    }
+
+    void add(Signature s) {
         if (s instanceof StaticMethodSignature) {
             staticMethodSignatures.add((StaticMethodSignature) s);
         } else if (s instanceof MethodSignature) {
@@ -201,6 +234,76 @@ public final class StaticWhitelist extends EnumeratingWhitelist {
         }
     }
 
+    /**
+     * Adds a signature to a whitelist which may already be in use, keeping cached verdicts for unrelated types.
+     * @param line a signature in the format of {@link #parse}
+     * @return false if the signature was already present
+     * @throws IOException if the signature string could not be parsed
+     */
+    @Restricted(NoExternalUse.class) // ScriptApproval
+    public boolean addSignature(@NonNull String line) throws IOException {
+        return update(parse(line), true);
+    }
+
+    /**
+     * Removes a signature from a whitelist which may already be in use, keeping cached verdicts for unrelated types.
+     * @param line a signature in the format of {@link #parse}
+     * @return false if the signature was not present
+     * @throws IOException if the signature string could not be parsed
+     */
+    @Restricted(NoExternalUse.class) // ScriptApproval
+    public boolean removeSignature(@NonNull String line) throws IOException {
+        return update(parse(line), false);
+    }
+
+    /**
+     * Removes signatures from whitelists which may already be in use,
+     * discarding cached verdicts once at the end rather than once per signature.
+     * @param signatures signatures in the format of {@link #parse}, by the whitelist to remove them from
+     * @return how many signatures were present and removed
+     * @throws IOException if any signature string could not be parsed, in which case none are removed
+     */
+    @Restricted(NoExternalUse.class) // ScriptApproval
+    public static int removeSignatures(@NonNull Map<StaticWhitelist, ? extends Collection<String>> signatures) throws IOException {
+        Map<StaticWhitelist, List<Signature>> parsed = new LinkedHashMap<>();
+        for (Map.Entry<StaticWhitelist, ? extends Collection<String>> entry : signatures.entrySet()) {
+            List<Signature> list = new ArrayList<>();
+            for (String line : entry.getValue()) {
+                list.add(parse(line));
+            }
+            parsed.put(entry.getKey(), list);
+        }
+        int removed = 0;
+        Set<String> types = new HashSet<>();
+        for (Map.Entry<StaticWhitelist, List<Signature>> entry : parsed.entrySet()) {
+            for (Signature s : entry.getValue()) {
+                if (entry.getKey().apply(s, false)) {
+                    removed++;
+                    types.add(s.declaringType());
+                }
+            }
+        }
+        if (removed > 0) {
+            invalidateCachedVerdicts(types);
+        }
+        return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override void publish(@NonNull Signature s, @NonNull List<? extends Signature> signatures) {
+        if (s instanceof StaticMethodSignature) {
+            staticMethodSignatures = (List<MethodSignature>) signatures;
+        } else if (s instanceof MethodSignature) {
+            methodSignatures = (List<MethodSignature>) signatures;
+        } else if (s instanceof StaticFieldSignature) {
+            staticFieldSignatures = (List<FieldSignature>) signatures;
+        } else if (s instanceof FieldSignature) {
+            fieldSignatures = (List<FieldSignature>) signatures;
+        } else {
+            newSignatures = (List<NewSignature>) signatures;
+        }
+    }
+
     public static StaticWhitelist from(URL definition) throws IOException {
         try (InputStream is = definition.openStream(); InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8)) {
             return new StaticWhitelist(isr);
@@ -209,6 +312,10 @@ public final class StaticWhitelist extends EnumeratingWhitelist {
 
     @Restricted(DoNotUse.class)
     @Extension public static Whitelist stockWhitelists() throws IOException {
+        StaticWhitelist precompiled = PrecompiledWhitelist.load(StaticWhitelist.class.getResource("generic-whitelist"), StaticWhitelist.class.getResource("jenkins-whitelist"));
+        if (precompiled != null) {
+            return precompiled;
+        }
         try (InputStream gis = StaticWhitelist.class.getResourceAsStream("generic-whitelist");
                 Reader gr = new InputStreamReader(gis, StandardCharsets.UTF_8);
                 InputStream jis = StaticWhitelist.class.getResourceAsStream("jenkins-whitelist");
@@ -240,40 +347,31 @@ public final class StaticWhitelist extends EnumeratingWhitelist {
 
     public static RejectedAccessException rejectMethod(@NonNull Method m) {
         assert (m.getModifiers() & Modifier.STATIC) == 0;
-        return blacklist(new RejectedAccessException("method", EnumeratingWhitelist.getName(m.getDeclaringClass()) + " " + m.getName() + printArgumentTypes(m.getParameterTypes())));
+        return blacklist(new RejectedAccessException("method", canonicalMethodString(m)));
     }
 
     public static RejectedAccessException rejectMethod(@NonNull Method m, String info) {
         assert (m.getModifiers() & Modifier.STATIC) == 0;
-        return blacklist(new RejectedAccessException("method", EnumeratingWhitelist.getName(m.getDeclaringClass()) + " " + m.getName() + printArgumentTypes(m.getParameterTypes()), info));
+        return blacklist(new RejectedAccessException("method", canonicalMethodString(m), info));
     }
 
     public static RejectedAccessException rejectNew(@NonNull Constructor<?> c) {
-        return blacklist(new RejectedAccessException("new", EnumeratingWhitelist.getName(c.getDeclaringClass()) + printArgumentTypes(c.getParameterTypes())));
+        return blacklist(new RejectedAccessException("new", canonicalConstructorString(c)));
     }
 
     public static RejectedAccessException rejectStaticMethod(@NonNull Method m) {
         assert (m.getModifiers() & Modifier.STATIC) != 0;
-        return blacklist(new RejectedAccessException("staticMethod", EnumeratingWhitelist.getName(m.getDeclaringClass()) + " " + m.getName() + printArgumentTypes(m.getParameterTypes())));
+        return blacklist(new RejectedAccessException("staticMethod", canonicalMethodString(m)));
     }
 
     public static RejectedAccessException rejectField(@NonNull Field f) {
         assert (f.getModifiers() & Modifier.STATIC) == 0;
-        return blacklist(new RejectedAccessException("field", EnumeratingWhitelist.getName(f.getDeclaringClass()) + " " + f.getName()));
+        return blacklist(new RejectedAccessException("field", canonicalFieldString(f)));
     }
 
     public static RejectedAccessException rejectStaticField(@NonNull Field f) {
         assert (f.getModifiers() & Modifier.STATIC) != 0;
-        return blacklist(new RejectedAccessException("staticField", EnumeratingWhitelist.getName(f.getDeclaringClass()) + " " + f.getName()));
-    }
-
-    private static String printArgumentTypes(Class<?>[] parameterTypes) {
-        StringBuilder b = new StringBuilder();
-        for (Class<?> c : parameterTypes) {
-            b.append(' ');
-            b.append(EnumeratingWhitelist.getName(c));
-        }
-        return b.toString();
+        return blacklist(new RejectedAccessException("staticField", canonicalFieldString(f)));
     }
 
     private static final Set<String> BLACKLIST;
@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.ExtensionList;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist.Signature;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Optionally prepares whitelists in the background after startup, so that the first builds after a restart do not pay for cold caches.
+ * Every signature in the registered whitelists, including approved signatures, is resolved on a bounded pool,
+ * and the declaring classes of those which resolve are {@linkplain Whitelist#preload preloaded}.
+ * Signatures which no longer {@linkplain Signature#exists exist} are reported.
+ */
+@Restricted(NoExternalUse.class)
+public final class WhitelistWarmup {
+
+    private static final Logger LOGGER = Logger.getLogger(WhitelistWarmup.class.getName());
+
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static /* non-final */ boolean ENABLED = SystemProperties.getBoolean(WhitelistWarmup.class.getName() + ".ENABLED");
+
+    /**
+     * Number of threads used to resolve signatures.
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "for script console")
+    public static /* non-final */ int PARALLELISM = SystemProperties.getInteger(WhitelistWarmup.class.getName() + ".PARALLELISM", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    private WhitelistWarmup() {}
+
+    @Initializer(after = InitMilestone.JOB_CONFIG_ADAPTED)
+    public static void schedule() {
+        if (ENABLED) {
+            Timer.get().submit(WhitelistWarmup::run);
+        }
+    }
+
+    static void run() {
+        long start = System.nanoTime();
+        Set<Signature> signatures = new LinkedHashSet<>();
+        Set<Whitelist> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Whitelist whitelist : ExtensionList.lookup(Whitelist.class)) {
+            collect(whitelist, signatures, seen);
+        }
+        Result result;
+        ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        try {
+            result = pool.submit(() -> warm(signatures, Jenkins.get().getPluginManager().uberClassLoader, Whitelist.all())).get();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException x) {
+            LOGGER.log(Level.WARNING, "Failed to warm up whitelists", x);
+            return;
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.info(() -> "Resolved " + signatures.size() + " whitelisted signatures and preloaded " + result.classes + " classes in " + elapsed + "ms");
+        if (!result.unresolved.isEmpty()) {
+            LOGGER.warning(() -> result.unresolved.size() + " whitelisted signatures do not refer to an existing member, or refer to an override: " + new TreeSet<>(result.unresolved));
+        }
+    }
+
+    static final class Result {
+
+        final int classes;
+        final Collection<String> unresolved;
+
+        Result(int classes, Collection<String> unresolved) {
+            this.classes = classes;
+            this.unresolved = unresolved;
+        }
+
+    }
+
+    /**
+     * Resolves signatures and preloads their classes with parallel streams,
+     * so the work runs in whichever {@link ForkJoinPool} this is called from:
+     * {@link #run} submits it to its own pool of {@link #PARALLELISM} threads, so that startup does not tie up the common pool.
+     */
+    static @NonNull Result warm(@NonNull Collection<Signature> signatures, @NonNull ClassLoader loader, @NonNull Whitelist whitelist) {
+        Set<Class<?>> classes = ConcurrentHashMap.newKeySet();
+        Set<String> unresolved = ConcurrentHashMap.newKeySet();
+        signatures.parallelStream().forEach(s -> {
+            try {
+                classes.add(Signature.type(s.declaringType(), loader));
+                if (!s.isWildcard() && !s.exists(loader)) {
+                    unresolved.add(s.toString());
+                }
+            } catch (Exception | LinkageError x) {
+                unresolved.add(s.toString());
+            }
+        });
+        classes.parallelStream().forEach(c -> {
+            try {
+                whitelist.preload(c);
+            } catch (RuntimeException | LinkageError x) {
+                LOGGER.log(Level.FINE, "could not preload " + c, x);
+            }
+        });
+        return new Result(classes.size(), unresolved);
+    }
+
+    /**
+     * Collects signatures from enumerating whitelists, including those wrapped by other whitelists in this plugin.
+     */
+    static void collect(@NonNull Whitelist whitelist, @NonNull Set<Signature> signatures, @NonNull Set<Whitelist> seen) {
+        if (!seen.add(whitelist)) {
+            return;
+        }
+        if (whitelist instanceof EnumeratingWhitelist) {
+            EnumeratingWhitelist e = (EnumeratingWhitelist) whitelist;
+            List<List<? extends Signature>> lists = List.of(e.methodSignatures(), e.newSignatures(), e.staticMethodSignatures(), e.fieldSignatures(), e.staticFieldSignatures());
+            for (List<? extends Signature> list : lists) {
+                // Approvals replace these lists rather than modifying them, so they may be read without locking.
+                signatures.addAll(list);
+            }
+        } else if (whitelist instanceof ProxyWhitelist) {
+            for (Whitelist delegate : ((ProxyWhitelist) whitelist).delegates()) {
+                collect(delegate, signatures, seen);
+            }
+        } else if (whitelist instanceof AclAwareWhitelist) {
+            for (Whitelist delegate : ((AclAwareWhitelist) whitelist).delegates()) {
+                collect(delegate, signatures, seen);
+            }
+        }
+    }
+
+}
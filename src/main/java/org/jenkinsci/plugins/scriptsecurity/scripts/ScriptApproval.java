@@ -58,6 +58,7 @@ import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -1026,31 +1027,80 @@ public final class ScriptApproval extends GlobalConfiguration implements RootAct
         return approvedScriptHashes.toArray(new String[approvedScriptHashes.size()]);
     }
 
-    private synchronized void configurationChanged() throws IOException {
+    private static ApprovedWhitelist approvedWhitelist() {
         // Do not use lookupSingleton: ScriptApprovalLoadingTest.dynamicLoading
         ApprovedWhitelist instance = ExtensionList.lookup(Whitelist.class).get(ApprovedWhitelist.class);
         if (instance == null) {
             throw new IllegalStateException("Failed to find ApprovedWhitelist");
         }
+        return instance;
+    }
+
+    private synchronized void configurationChanged() throws IOException {
         LOG.fine("resetting");
-        synchronized (instance) {
-            instance.pendingDelegate = new AclAwareWhitelist(new StaticWhitelist(approvedSignatures), new StaticWhitelist(aclApprovedSignatures));
+        approvedWhitelist().load(approvedSignatures, aclApprovedSignatures);
+    }
+
+    /**
+     * Applies the approval or removal of a single signature without reparsing all the others,
+     * so verdicts already cached for unrelated types remain valid.
+     */
+    private synchronized void signatureChanged(String signature, boolean acl, boolean approved) throws IOException {
+        if (!approvedWhitelist().update(signature, acl, approved)) {
+            configurationChanged();
+        }
+    }
+
+    /**
+     * Like {@link #signatureChanged} for the removal of several signatures at once.
+     */
+    private synchronized void signaturesRemoved(Collection<String> signatures, Collection<String> aclSignatures) throws IOException {
+        if (!approvedWhitelist().remove(signatures, aclSignatures)) {
+            configurationChanged();
         }
     }
 
     @Restricted(NoExternalUse.class) // implementation
     @Extension public static final class ApprovedWhitelist extends ProxyWhitelist {
 
-        private @CheckForNull Whitelist pendingDelegate;
+        private @CheckForNull StaticWhitelist approved, aclApproved;
+
+        synchronized void load(Collection<String> approvedSignatures, Collection<String> aclApprovedSignatures) throws IOException {
+            StaticWhitelist newApproved = new StaticWhitelist(approvedSignatures);
+            StaticWhitelist newAclApproved = new StaticWhitelist(aclApprovedSignatures);
+            approved = newApproved;
+            aclApproved = newAclApproved;
+            // Published with a volatile write, so sandboxed calls never need to take a lock to see the latest approvals.
+            reset(Set.of(new AclAwareWhitelist(newApproved, newAclApproved)));
+        }
 
-        @Override protected synchronized void beforePermits() {
-            if (pendingDelegate != null) {
-                LOG.fine("refreshing");
-                reset(Set.of(pendingDelegate));
-                pendingDelegate = null;
+        /**
+         * Adds or removes one signature in place.
+         * @return false if nothing has been loaded yet, so the caller should {@link #load} everything instead
+         */
+        synchronized boolean update(String signature, boolean acl, boolean add) throws IOException {
+            StaticWhitelist target = acl ? aclApproved : approved;
+            if (target == null) {
+                return false;
+            }
+            if (add) {
+                target.addSignature(signature);
             } else {
-                LOG.finer("no need to refresh");
+                target.removeSignature(signature);
+            }
+            return true;
+        }
+
+        /**
+         * Removes several signatures in place, discarding cached verdicts once.
+         * @return false if nothing has been loaded yet, so the caller should {@link #load} everything instead
+         */
+        synchronized boolean remove(Collection<String> signatures, Collection<String> aclSignatures) throws IOException {
+            if (approved == null || aclApproved == null) {
+                return false;
             }
+            StaticWhitelist.removeSignatures(Map.of(approved, signatures, aclApproved, aclSignatures));
+            return true;
         }
 
     }
@@ -1195,6 +1245,10 @@ public final class ScriptApproval extends GlobalConfiguration implements RootAct
 
     private synchronized String[][] reconfigure() throws IOException {
         configurationChanged();
+        return signatureLists();
+    }
+
+    private synchronized String[][] signatureLists() {
         return new String[][] {getApprovedSignatures(), getAclApprovedSignatures(), getDangerousApprovedSignatures()};
     }
 
@@ -1202,18 +1256,24 @@ public final class ScriptApproval extends GlobalConfiguration implements RootAct
     @JavaScriptMethod public synchronized String[][] approveSignature(String signature) throws IOException {
         Jenkins.get().checkPermission(Jenkins.ADMINISTER);
         pendingSignatures.remove(new PendingSignature(signature, false, ApprovalContext.create()));
-        approvedSignatures.add(signature);
+        boolean added = approvedSignatures.add(signature);
         save();
-        return reconfigure();
+        if (added) {
+            signatureChanged(signature, false, true);
+        }
+        return signatureLists();
     }
 
     @Restricted(NoExternalUse.class) // for use from AJAX
     @JavaScriptMethod public synchronized String[][] aclApproveSignature(String signature) throws IOException {
         Jenkins.get().checkPermission(Jenkins.ADMINISTER);
         pendingSignatures.remove(new PendingSignature(signature, false, ApprovalContext.create()));
-        aclApprovedSignatures.add(signature);
+        boolean added = aclApprovedSignatures.add(signature);
         save();
-        return reconfigure();
+        if (added) {
+            signatureChanged(signature, true, true);
+        }
+        return signatureLists();
     }
 
     @Restricted(NoExternalUse.class) // for use from AJAX
@@ -1238,22 +1298,31 @@ public final class ScriptApproval extends GlobalConfiguration implements RootAct
     @JavaScriptMethod public synchronized String[][] clearDangerousApprovedSignatures() throws IOException {
         Jenkins.get().checkPermission(Jenkins.ADMINISTER);
 
+        List<String> removed = new ArrayList<>();
         Iterator<String> it = approvedSignatures.iterator();
         while (it.hasNext()) {
-            if (StaticWhitelist.isBlacklisted(it.next())) {
+            String signature = it.next();
+            if (StaticWhitelist.isBlacklisted(signature)) {
                 it.remove();
+                removed.add(signature);
             }
         }
 
+        List<String> aclRemoved = new ArrayList<>();
         it = aclApprovedSignatures.iterator();
         while (it.hasNext()) {
-            if (StaticWhitelist.isBlacklisted(it.next())) {
+            String signature = it.next();
+            if (StaticWhitelist.isBlacklisted(signature)) {
                 it.remove();
+                aclRemoved.add(signature);
             }
         }
 
         save();
-        return reconfigure();
+        if (!removed.isEmpty() || !aclRemoved.isEmpty()) {
+            signaturesRemoved(removed, aclRemoved);
+        }
+        return signatureLists();
     }
 
     @Restricted(NoExternalUse.class)
@@ -24,7 +24,11 @@
 
 package org.jenkinsci.plugins.scriptsecurity.sandbox.groovy;
 
+import groovy.lang.Closure;
 import groovy.lang.GString;
+import groovy.lang.GroovyInterceptable;
+import groovy.lang.GroovyObject;
+import groovy.lang.GroovyObjectSupport;
 import hudson.EnvVars;
 import hudson.model.BooleanParameterValue;
 import hudson.model.Hudson;
@@ -34,13 +38,17 @@ import java.io.PrintWriter;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import hudson.model.ParameterValue;
 import hudson.model.ParametersAction;
 import hudson.model.StringParameterValue;
 import jenkins.model.Jenkins;
+import org.codehaus.groovy.runtime.DefaultGroovyMethods;
 import org.codehaus.groovy.runtime.GStringImpl;
+import org.codehaus.groovy.runtime.StringGroovyMethods;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelistTest;
 import static org.junit.Assert.*;
@@ -89,6 +97,61 @@ public class GroovyCallSiteSelectorTest {
         public static void m2(long x) {}
     }
 
+    @Test public void overloadsByArity() throws Exception {
+        Overloaded receiver = new Overloaded();
+        assertEquals(Overloaded.class.getMethod("m"), GroovyCallSiteSelector.method(receiver, "m", new Object[0]));
+        assertEquals(Overloaded.class.getMethod("m", String.class), GroovyCallSiteSelector.method(receiver, "m", new Object[] {"a"}));
+        assertEquals(Overloaded.class.getMethod("m", String.class, String[].class), GroovyCallSiteSelector.method(receiver, "m", new Object[] {"a", "b"}));
+        assertEquals(Overloaded.class.getMethod("m", String.class, String[].class), GroovyCallSiteSelector.method(receiver, "m", new Object[] {"a", "b", "c"}));
+        assertNull(GroovyCallSiteSelector.method(receiver, "m", new Object[] {1}));
+        assertEquals(Overloaded.class.getMethod("n", String.class, Object[].class), GroovyCallSiteSelector.method(receiver, "n", new Object[] {"a", 1, 2}));
+        assertNull(GroovyCallSiteSelector.method(receiver, "n", new Object[] {"a"}));
+        assertEquals(3, GroovyCallSiteSelector.methods(receiver, "m", m -> true).size());
+        assertEquals(Overloaded.class.getField("f"), GroovyCallSiteSelector.field(receiver, "f"));
+        assertNull(GroovyCallSiteSelector.field(receiver, "g"));
+    }
+    public static class Overloaded {
+        public String f;
+        public void m() {}
+        public void m(String a) {}
+        public void m(String a, String... rest) {}
+        public void n(String a, Object[] rest) {}
+    }
+
+    @Test public void supertypes() throws Exception {
+        assertEquals("most general declaration", Collection.class.getMethod("size"), GroovyCallSiteSelector.method(new ArrayList<>(), "size", new Object[0]));
+        Method invokeMethod = GroovyObject.class.getMethod("invokeMethod", String.class, Object.class);
+        assertEquals(invokeMethod, GroovyCallSiteSelector.method(new Intercepting(), "whatever", new Object[0]));
+        assertEquals(Collections.singletonList(invokeMethod), GroovyCallSiteSelector.methods(new Intercepting(), "whatever", m -> false));
+    }
+    public static class Intercepting extends GroovyObjectSupport implements GroovyInterceptable {}
+
+    @Test public void gdkMethods() throws Exception {
+        GStringImpl gString = new GStringImpl(new Object[] {1}, new String[] {"a ", " b"});
+        Object[][] selfArgs = {
+            {new ArrayList<>(), Closure.IDENTITY},
+            {"a b"},
+            {gString},
+            {"abc", 1},
+            {Arrays.asList(1, 2), 0},
+            {5, Closure.IDENTITY},
+            {new Object[] {1}, ","},
+        };
+        String[] methods = {"each", "tokenize", "tokenize", "getAt", "getAt", "times", "join"};
+        for (int i = 0; i < methods.length; i++) {
+            Method expected = null;
+            for (Class<?> gdkClass : new Class<?>[] {DefaultGroovyMethods.class, StringGroovyMethods.class}) {
+                Method m = GroovyCallSiteSelector.gdkMethod(gdkClass, methods[i], selfArgs[i]);
+                assertEquals("same as without narrowing by self type", GroovyCallSiteSelector.staticMethod(gdkClass, methods[i], selfArgs[i]), m);
+                if (expected == null) {
+                    expected = m;
+                }
+            }
+            assertNotNull(methods[i], expected);
+        }
+        assertNull(GroovyCallSiteSelector.gdkMethod(DefaultGroovyMethods.class, "tokenize", new Object[] {new ArrayList<>()}));
+    }
+
     @Test public void staticMethodsCannotBeOverridden() throws Exception {
         assertEquals(Jenkins.class.getMethod("getInstance"), GroovyCallSiteSelector.staticMethod(Jenkins.class, "getInstance", new Object[0]));
         assertEquals(Hudson.class.getMethod("getInstance"), GroovyCallSiteSelector.staticMethod(Hudson.class, "getInstance", new Object[0]));
@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.scriptsecurity.sandbox.groovy;
+
+import groovy.lang.GroovyObjectSupport;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MethodCallCacheTest {
+
+    @Test public void keyedByArgumentClasses() throws Exception {
+        List<Object> list = new ArrayList<>();
+        MethodCallCache.Entry string = MethodCallCache.method(list, "add", new Object[] {"x"});
+        assertEquals(Collection.class.getMethod("add", Object.class), string.method);
+        assertSame(string, MethodCallCache.method(list, "add", new Object[] {"y"}));
+        assertNotSame(string, MethodCallCache.method(list, "add", new Object[] {1}));
+        MethodCallCache.Entry nullArg = MethodCallCache.method(list, "add", new Object[] {null});
+        assertNotSame(string, nullArg);
+        assertSame(nullArg, MethodCallCache.method(list, "add", new Object[] {null}));
+        assertNull(MethodCallCache.method(list, "nonexistent", new Object[0]).method);
+    }
+
+    @Test public void notCachedForValueDependentSelection() throws Exception {
+        Primitives receiver = new Primitives();
+        assertEquals(Primitives.class.getMethod("m", int.class), MethodCallCache.method(receiver, "m", new Object[] {1L}).method);
+        assertEquals(Primitives.class.getMethod("m", long.class), MethodCallCache.method(receiver, "m", new Object[] {Long.MAX_VALUE}).method);
+    }
+    public static class Primitives {
+        public void m(int x) {}
+        public void m(long x) {}
+    }
+
+    @Test public void argumentClassesNotPinned() throws Exception {
+        List<Object> list = new ArrayList<>();
+        Primitives arg = new Primitives();
+        assertNotSame("bootstrap receiver, argument from another loader", MethodCallCache.method(list, "add", new Object[] {arg}), MethodCallCache.method(list, "add", new Object[] {arg}));
+        assertSame(MethodCallCache.method(arg, "equals", new Object[] {list}), MethodCallCache.method(arg, "equals", new Object[] {list}));
+    }
+
+    @Test public void fallbacks() throws Exception {
+        MethodCallCache.Fallbacks list = MethodCallCache.fallbacks(ArrayList.class);
+        assertFalse(list.invokeMethod);
+        assertTrue(MethodCallCache.fallbacks(GroovyObjectSupport.class).invokeMethod);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(list.mightHaveGdkMethod("each", 1));
+            assertFalse(list.mightHaveGdkMethod("each", 5));
+            assertFalse("not a GDK method", list.mightHaveGdkMethod("point", 1));
+            assertFalse("not for this receiver", list.mightHaveGdkMethod("tokenize", 0));
+            assertTrue(MethodCallCache.fallbacks(String.class).mightHaveGdkMethod("tokenize", 0));
+            assertFalse("not cached", list.mightHaveGdkMethod("collect", 40));
+        }
+    }
+
+}
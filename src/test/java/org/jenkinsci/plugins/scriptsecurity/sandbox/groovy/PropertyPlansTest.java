@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2026 CloudBees, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package org.jenkinsci.plugins.scriptsecurity.sandbox.groovy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import org.codehaus.groovy.runtime.GStringImpl;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.BlanketWhitelist;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.ProxyWhitelist;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PropertyPlansTest {
+
+    private static final Whitelist NONE = new ProxyWhitelist();
+    private static final Whitelist ALL = new BlanketWhitelist();
+
+    @Test public void reads() throws Exception {
+        Bean bean = new Bean();
+        PropertyPlans.Read ok = PropertyPlans.read(bean, "ok");
+        assertSame(ok, PropertyPlans.read(new Bean(), "ok"));
+        assertNull(ok.check(ALL, bean, "ok"));
+        assertEquals("Scripts not permitted to use method " + Bean.class.getName() + " isOk", ok.check(NONE, bean, "ok").reject(bean, "ok").getMessage());
+        assertEquals("Scripts not permitted to use field " + Bean.class.getName() + " count", PropertyPlans.read(bean, "count").check(NONE, bean, "count").reject(bean, "count").getMessage());
+        assertSame(PropertyPlans.Step.NONE, PropertyPlans.read(bean, "nothing").check(ALL, bean, "nothing"));
+    }
+
+    @Test public void staticReads() throws Exception {
+        PropertyPlans.Read name = PropertyPlans.read(Bean.class, "NAME");
+        assertNotSame("keyed by the receiving class", name, PropertyPlans.read(String.class, "NAME"));
+        assertNull(name.check(ALL, Bean.class, "NAME"));
+        assertEquals("Scripts not permitted to use staticField " + Bean.class.getName() + " NAME", name.check(NONE, Bean.class, "NAME").reject(Bean.class, "NAME").getMessage());
+        assertEquals("Scripts not permitted to use method java.lang.Class getName", PropertyPlans.read(Bean.class, "name").check(NONE, Bean.class, "name").reject(Bean.class, "name").getMessage());
+    }
+
+    @Test public void writes() throws Throwable {
+        Bean bean = new Bean();
+        PropertyPlans.Write label = PropertyPlans.write(bean, "label", "x");
+        assertSame(label, PropertyPlans.write(new Bean(), "label", "y"));
+        assertNotSame("keyed by the value class", label, PropertyPlans.write(bean, "label", 1));
+        assertNotSame(label, PropertyPlans.write(bean, "label", null));
+        assertNull(label.check(ALL, bean, "label", "x"));
+        assertEquals("Scripts not permitted to use method " + Bean.class.getName() + " setLabel java.lang.String", label.check(NONE, bean, "label", "x").reject(bean, "label").getMessage());
+        assertEquals("Scripts not permitted to use field " + Bean.class.getName() + " count", PropertyPlans.write(bean, "count", 1).check(NONE, bean, "count", 1).reject(bean, "count").getMessage());
+        assertEquals("Scripts not permitted to use staticField " + Bean.class.getName() + " NAME", PropertyPlans.write(Bean.class, "NAME", "x").check(NONE, Bean.class, "NAME", "x").reject(Bean.class, "NAME").getMessage());
+        assertSame(PropertyPlans.WriteStep.NONE, PropertyPlans.write(bean, "nothing", "x").check(ALL, bean, "nothing", "x"));
+    }
+
+    @Test public void castsCheckedUnlessInstances() {
+        assertTrue(PropertyPlans.WriteStep.passesUnchanged(String.class, "x"));
+        assertTrue(PropertyPlans.WriteStep.passesUnchanged(CharSequence.class, "x"));
+        assertTrue(PropertyPlans.WriteStep.passesUnchanged(List.class, new ArrayList<>()));
+        assertFalse("coerced to String", PropertyPlans.WriteStep.passesUnchanged(String.class, new GStringImpl(new Object[] {"x"}, new String[] {"", ""})));
+        assertFalse("numeric coercion", PropertyPlans.WriteStep.passesUnchanged(Long.class, 1));
+        assertFalse("unboxing", PropertyPlans.WriteStep.passesUnchanged(int.class, 1));
+        assertFalse("collection cast may call a constructor", PropertyPlans.WriteStep.passesUnchanged(Set.class, new ArrayList<>()));
+        assertFalse(PropertyPlans.WriteStep.passesUnchanged(String.class, null));
+    }
+
+    @Test public void mapConstructors() throws Throwable {
+        Object[] args = {new LinkedHashMap<>()};
+        PropertyPlans.MapAssignments first = PropertyPlans.mapAssignments(Bean.class, LinkedHashMap.class);
+        assertEquals(Bean.class.getConstructor(), first.constructor(args));
+        Bean bean = new Bean();
+        PropertyPlans.Assignment label = first.next(bean, "label", "x");
+        assertTrue(label.matches(bean, "label", "x"));
+        assertFalse("only for this object", label.matches(new Bean(), "label", "x"));
+        assertFalse("only for this value class", label.matches(bean, "label", 1));
+        first.next(bean, "count", 1);
+        first.done();
+        PropertyPlans.MapAssignments second = PropertyPlans.mapAssignments(Bean.class, LinkedHashMap.class);
+        assertEquals(Bean.class.getConstructor(), second.constructor(args));
+        Bean other = new Bean();
+        assertSame(label.write, second.next(other, "label", "y").write);
+        assertNull("not a string key", second.next(other, 1, "z"));
+    }
+
+    public static class Bean {
+        public static String NAME = "bean";
+        public int count;
+        public boolean isOk() {
+            return true;
+        }
+        public void setLabel(String label) {}
+    }
+
+}
@@ -24,16 +24,24 @@
 
 package org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.jvnet.hudson.test.Issue;
+import org.jvnet.hudson.test.MemoryAssert;
 import static org.junit.Assert.*;
 
 public class EnumeratingWhitelistTest {
@@ -65,6 +73,20 @@ public class EnumeratingWhitelistTest {
         for (Class<?> c : new Class<?>[] {String.class, Map.Entry.class, int.class, String[].class, Map.Entry[].class, int[].class, String[][].class, Map.Entry[][].class, int[][].class}) {
             assertEquals(c, EnumeratingWhitelist.Signature.type(EnumeratingWhitelist.getName(c)));
         }
+        assertSame(EnumeratingWhitelist.getName(Object[][].class), EnumeratingWhitelist.getName(Object[][].class));
+    }
+
+    @Test public void signatureEquality() throws Exception {
+        EnumeratingWhitelist.Signature method = StaticWhitelist.parse("method java.lang.String substring int int");
+        assertEquals("method java.lang.String substring int int", method.toString());
+        assertSame(method.toString(), method.toString());
+        EnumeratingWhitelist.Signature same = new EnumeratingWhitelist.MethodSignature(String.class, "substring", int.class, int.class);
+        assertEquals(method, same);
+        assertEquals(method.hashCode(), same.hashCode());
+        EnumeratingWhitelist.Signature staticMethod = StaticWhitelist.parse("staticMethod java.lang.String substring int int");
+        assertNotEquals(method, staticMethod);
+        assertEquals(0, method.compareTo(same));
+        assertTrue(method.compareTo(staticMethod) < 0);
     }
 
     @Test public void methodExists() throws Exception {
@@ -165,6 +187,136 @@ public class EnumeratingWhitelistTest {
         assertTrue(myList.permitsFieldGet(f, new C()));  // Should hit cache for that specific method
     }
 
+    @Test
+    public void cachingByMemberEquality() throws Exception {
+        StaticWhitelist myList = new StaticWhitelist(
+                "method " + Fancy.class.getName() + " m java.lang.Object[]",
+                "field " + Fancy.class.getName() + " myF",
+                "staticMethod java.lang.Math max int int");
+
+        // Class.getMethod and friends return a fresh copy each time, as does GroovyCallSiteSelector.
+        Method m1 = Fancy.class.getMethod("m", Object[].class);
+        Method m2 = Fancy.class.getMethod("m", Object[].class);
+        assertNotSame(m1, m2);
+        assertTrue(myList.permitsMethod(m1, new Fancy(), new Object[0]));
+        assertTrue(myList.permitsMethod(m2, new Fancy(), new Object[0]));
+        assertEquals(1, myList.getCacheMissCount());
+        assertEquals(1, myList.getCacheHitCount());
+
+        Field f1 = Fancy.class.getField("myF");
+        Field f2 = Fancy.class.getField("myF");
+        assertNotSame(f1, f2);
+        assertTrue(myList.permitsFieldGet(f1, new Fancy()));
+        assertTrue(myList.permitsFieldGet(f2, new Fancy()));
+        assertEquals(2, myList.getCacheMissCount());
+        assertEquals(2, myList.getCacheHitCount());
+
+        assertFalse(myList.permitsStaticMethod(Fancy.class.getMethod("staticM", Object.class), new Object[0]));
+        assertFalse(myList.permitsStaticMethod(Fancy.class.getMethod("staticM", Object.class), new Object[0]));
+        assertEquals(3, myList.getCacheMissCount());
+        assertEquals(3, myList.getCacheHitCount());
+    }
+
+    @Test
+    public void indexedLookup() throws Exception {
+        StaticWhitelist myList = new StaticWhitelist(
+                "method java.lang.String substring int",
+                "method java.lang.CharSequence length",
+                "method " + C.class.getName() + " * java.lang.Object[]",
+                "new java.lang.StringBuilder java.lang.String");
+        assertTrue(myList.permitsMethod(String.class.getMethod("substring", int.class), "x", new Object[] {0}));
+        assertFalse("other overloads are not permitted", myList.permitsMethod(String.class.getMethod("substring", int.class, int.class), "x", new Object[] {0, 0}));
+        assertFalse("declaring type must match exactly", myList.permitsMethod(String.class.getMethod("length"), "x", new Object[0]));
+        assertTrue(myList.permitsMethod(CharSequence.class.getMethod("length"), "x", new Object[0]));
+        assertTrue("wildcard", myList.permitsMethod(C.class.getMethod("m", Object[].class), new C(), new Object[] {new Object[0]}));
+        assertTrue(myList.permitsConstructor(StringBuilder.class.getConstructor(String.class), new Object[] {"x"}));
+        assertFalse(myList.permitsConstructor(StringBuilder.class.getConstructor(CharSequence.class), new Object[] {"x"}));
+        assertFalse(myList.permitsConstructor(StringBuilder.class.getConstructor(), new Object[0]));
+    }
+
+    @Test
+    public void incrementalUpdates() throws Exception {
+        StaticWhitelist myList = new StaticWhitelist(
+                "method java.lang.String trim",
+                "method java.lang.StringBuilder length");
+        Method trim = String.class.getMethod("trim");
+        Method strip = String.class.getMethod("strip");
+        Method length = StringBuilder.class.getMethod("length");
+        assertTrue(myList.permitsMethod(trim, "x", new Object[0]));
+        assertFalse(myList.permitsMethod(strip, "x", new Object[0]));
+        assertTrue(myList.permitsMethod(length, new StringBuilder(), new Object[0]));
+        assertEquals("one table each for String and StringBuilder", 2, myList.getCacheMissCount());
+
+        List<EnumeratingWhitelist.MethodSignature> before = myList.methodSignatures;
+        assertTrue(myList.addSignature("method java.lang.String strip"));
+        assertEquals("lists which other threads may be reading are replaced, not modified", 2, before.size());
+        assertEquals(3, myList.methodSignatures.size());
+        assertFalse("already present", myList.addSignature("method java.lang.String strip"));
+        assertTrue(myList.permitsMethod(strip, "x", new Object[0]));
+        assertTrue(myList.permitsMethod(trim, "x", new Object[0]));
+        assertEquals("verdicts for String were discarded", 3, myList.getCacheMissCount());
+        assertTrue(myList.permitsMethod(length, new StringBuilder(), new Object[0]));
+        assertEquals("verdicts for StringBuilder were kept", 3, myList.getCacheMissCount());
+
+        assertTrue(myList.removeSignature("method java.lang.String trim"));
+        assertFalse("already absent", myList.removeSignature("method java.lang.String trim"));
+        assertFalse(myList.permitsMethod(trim, "x", new Object[0]));
+        assertTrue(myList.permitsMethod(strip, "x", new Object[0]));
+        assertTrue(myList.permitsMethod(length, new StringBuilder(), new Object[0]));
+        assertEquals(4, myList.getCacheMissCount());
+
+        StaticWhitelist empty = new StaticWhitelist();
+        assertFalse(empty.permitsStaticMethod(Math.class.getMethod("abs", int.class), new Object[] {1}));
+        assertTrue(empty.addSignature("staticMethod java.lang.Math abs int"));
+        assertTrue(empty.permitsStaticMethod(Math.class.getMethod("abs", int.class), new Object[] {1}));
+        assertTrue(empty.removeSignature("staticMethod java.lang.Math abs int"));
+        assertFalse(empty.permitsStaticMethod(Math.class.getMethod("abs", int.class), new Object[] {1}));
+    }
+
+    @Test
+    public void merge() throws Exception {
+        EnumeratingWhitelist merged = EnumeratingWhitelist.merge(List.of(
+                new StaticWhitelist("method java.lang.String trim", "new java.lang.StringBuilder"),
+                new StaticWhitelist("staticMethod java.lang.Math abs int", "staticField java.util.Collections EMPTY_LIST"),
+                new StaticWhitelist("method java.lang.String strip", "field " + Fancy.class.getName() + " myF")));
+        assertTrue(merged.permitsMethod(String.class.getMethod("trim"), "x", new Object[0]));
+        assertTrue(merged.permitsMethod(String.class.getMethod("strip"), "x", new Object[0]));
+        assertFalse(merged.permitsMethod(String.class.getMethod("length"), "x", new Object[0]));
+        assertTrue(merged.permitsConstructor(StringBuilder.class.getConstructor(), new Object[0]));
+        assertTrue(merged.permitsStaticMethod(Math.class.getMethod("abs", int.class), new Object[] {1}));
+        assertTrue(merged.permitsStaticFieldGet(Collections.class.getField("EMPTY_LIST")));
+        assertTrue(merged.permitsFieldGet(Fancy.class.getField("myF"), new Fancy()));
+    }
+
+    @Test public void droppedWhitelistCollected() throws Exception {
+        StaticWhitelist sw = new StaticWhitelist("method java.lang.String trim", "new java.lang.String java.lang.String");
+        assertTrue(sw.permitsMethod(String.class.getMethod("trim"), "x", new Object[0]));
+        assertTrue(sw.permitsConstructor(String.class.getConstructor(String.class), new Object[] {"x"}));
+        WeakReference<StaticWhitelist> ref = new WeakReference<>(sw);
+        sw = null;
+        MemoryAssert.assertGC(ref, false);
+    }
+
+    @Test public void warmup() throws Exception {
+        StaticWhitelist sw = new StaticWhitelist(
+                "method java.lang.String trim",
+                "method java.lang.String noSuchMethod",
+                "staticMethod java.lang.Math abs int",
+                "method java.util.ArrayList size",
+                "field no.such.Type x");
+        ProxyWhitelist pw = new ProxyWhitelist(new AclAwareWhitelist(sw, new StaticWhitelist()));
+        Set<EnumeratingWhitelist.Signature> signatures = new LinkedHashSet<>();
+        WhitelistWarmup.collect(pw, signatures, Collections.newSetFromMap(new IdentityHashMap<>()));
+        assertEquals(5, signatures.size());
+        WhitelistWarmup.Result result = WhitelistWarmup.warm(signatures, EnumeratingWhitelistTest.class.getClassLoader(), pw);
+        assertEquals("String, Math and ArrayList", 3, result.classes);
+        assertEquals(Set.of("method java.lang.String noSuchMethod", "method java.util.ArrayList size", "field no.such.Type x"), new HashSet<>(result.unresolved));
+        long misses = sw.getCacheMissCount();
+        assertTrue(pw.permitsMethod(String.class.getMethod("trim"), "x", new Object[0]));
+        assertTrue(pw.permitsStaticMethod(Math.class.getMethod("abs", int.class), new Object[] {1}));
+        assertEquals("tables were preloaded", misses, sw.getCacheMissCount());
+    }
+
     @Issue("JENKINS-42214")
     @Test public void fieldExists() throws Exception {
         assertTrue(new EnumeratingWhitelist.FieldSignature("hudson.model.Result", "color").exists());
@@ -24,12 +24,15 @@
 
 package org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.ResolvedCheck;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
 import org.junit.Test;
 import org.jvnet.hudson.test.Issue;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -39,6 +42,7 @@ import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 public class ProxyWhitelistTest {
@@ -64,6 +68,136 @@ public class ProxyWhitelistTest {
         assertFalse(pw2.permitsStaticFieldGet(Collections.class.getField("EMPTY_LIST")));
     }
 
+    @Test public void cachedVerdicts() throws Exception {
+        Counting cacheable = new Counting(true);
+        Counting uncacheable = new Counting(false);
+        ProxyWhitelist pw = new ProxyWhitelist(cacheable, uncacheable);
+        assertFalse(pw.isCacheable());
+        Method length = String.class.getMethod("length");
+        assertFalse(pw.permitsMethod(length, "x", new Object[0]));
+        assertFalse(pw.permitsMethod(String.class.getMethod("length"), "x", new Object[0]));
+        assertEquals("cached by member equality", 1, cacheable.checks);
+        assertEquals("consulted every time", 2, uncacheable.checks);
+        Whitelist.invalidateCachedVerdicts();
+        assertFalse(pw.permitsMethod(length, "x", new Object[0]));
+        assertEquals(2, cacheable.checks);
+        assertTrue(new ProxyWhitelist(cacheable, new BlanketWhitelist()).isCacheable());
+
+        StaticWhitelist sw = new StaticWhitelist();
+        ProxyWhitelist pw2 = new ProxyWhitelist(new ProxyWhitelist(sw), new StaticWhitelist("method java.lang.Object hashCode"));
+        assertTrue(pw2.isCacheable());
+        assertFalse(pw2.permitsMethod(length, "x", new Object[0]));
+        sw.addSignature("method java.lang.String length");
+        assertTrue("approvals invalidate cached verdicts", pw2.permitsMethod(length, "x", new Object[0]));
+    }
+
+    @Test public void invalidationLimitedToChangedTypes() throws Exception {
+        Counting cacheable = new Counting(true);
+        StaticWhitelist sw = new StaticWhitelist();
+        ProxyWhitelist pw = new ProxyWhitelist(cacheable, sw);
+        Method length = String.class.getMethod("length");
+        ResolvedCheck resolved = ResolvedCheck.method(cacheable, length);
+        assertFalse(pw.permitsMethod(length, "x", new Object[0]));
+        assertFalse(resolved.permits("x"));
+        assertEquals(2, cacheable.checks);
+        sw.addSignature("method java.lang.Integer intValue");
+        assertTrue(pw.permitsMethod(Integer.class.getMethod("intValue"), 1, new Object[0]));
+        assertEquals(3, cacheable.checks);
+        assertFalse(pw.permitsMethod(length, "x", new Object[0]));
+        assertFalse(resolved.permits("x"));
+        assertEquals("verdicts for other types kept", 3, cacheable.checks);
+        sw.addSignature("method java.lang.String trim");
+        assertFalse(pw.permitsMethod(length, "x", new Object[0]));
+        assertFalse(resolved.permits("x"));
+        assertEquals("verdicts for the changed type discarded", 5, cacheable.checks);
+        pw.reset(List.of(cacheable, sw));
+        assertFalse(pw.permitsMethod(length, "x", new Object[0]));
+        assertFalse(resolved.permits("x"));
+        assertEquals("reset discards everything", 7, cacheable.checks);
+    }
+
+    @Test public void routing() throws Exception {
+        Counting strings = new Counting(false) {
+            @Override public boolean mayPermit(@NonNull Class<?> declaringClass) {
+                return declaringClass == String.class;
+            }
+        };
+        StaticWhitelist sw = new StaticWhitelist("method java.lang.Integer intValue");
+        ProxyWhitelist pw = new ProxyWhitelist(sw, strings);
+        assertTrue(pw.permitsMethod(Integer.class.getMethod("intValue"), 1, new Object[0]));
+        assertFalse(pw.permitsMethod(Integer.class.getMethod("longValue"), 1, new Object[0]));
+        assertEquals("not consulted for other classes", 0, strings.checks);
+        assertFalse(pw.permitsMethod(String.class.getMethod("length"), "x", new Object[0]));
+        assertEquals(1, strings.checks);
+        assertTrue(pw.mayPermit(Integer.class));
+        assertTrue(pw.mayPermit(String.class));
+        assertFalse(pw.mayPermit(Long.class));
+        sw.addSignature("method java.lang.Long longValue");
+        assertTrue("routes follow approvals", pw.permitsMethod(Long.class.getMethod("longValue"), 1L, new Object[0]));
+    }
+
+    @Test public void resolvedChecks() throws Exception {
+        Counting strings = new Counting(false) {
+            @Override public boolean mayPermit(@NonNull Class<?> declaringClass) {
+                return declaringClass == String.class;
+            }
+        };
+        StaticWhitelist sw = new StaticWhitelist();
+        ProxyWhitelist pw = new ProxyWhitelist(sw, strings);
+        assertFalse(pw.isCacheable());
+        assertTrue(pw.isCacheable(Integer.class));
+        assertFalse(pw.isCacheable(String.class));
+        Method intValue = Integer.class.getMethod("intValue");
+        ResolvedCheck integers = ResolvedCheck.method(pw, intValue);
+        assertFalse(integers.permits(1));
+        sw.addSignature("method java.lang.Integer intValue");
+        assertTrue("approvals invalidate resolved checks", integers.permits(1));
+        assertTrue(integers.permits(2));
+        ResolvedCheck length = ResolvedCheck.method(pw, String.class.getMethod("length"));
+        assertFalse(length.permits("x"));
+        assertFalse(length.permits("x"));
+        assertEquals("consulted each time when not cacheable", 2, strings.checks);
+        Counting cacheable = new Counting(true);
+        ResolvedCheck cached = ResolvedCheck.method(cacheable, intValue);
+        assertFalse(cached.permits(1));
+        assertFalse(cached.permits(2));
+        assertEquals(1, cacheable.checks);
+        Whitelist.invalidateCachedVerdicts();
+        assertFalse(cached.permits(1));
+        assertEquals(2, cacheable.checks);
+    }
+
+    @Test public void aclAwareCacheability() throws Exception {
+        AclAwareWhitelist acl = new AclAwareWhitelist(new StaticWhitelist("method java.lang.String trim"), new StaticWhitelist("method java.lang.StringBuilder length"));
+        assertTrue("the user only matters for restricted signatures", acl.isCacheable(String.class));
+        assertFalse(acl.isCacheable(StringBuilder.class));
+        ProxyWhitelist pw = new ProxyWhitelist(new AnnotatedWhitelist(), new ProxyWhitelist(acl));
+        assertTrue(pw.isCacheable(String.class));
+        assertTrue(pw.isCacheable(Integer.class));
+        assertFalse(pw.isCacheable(StringBuilder.class));
+    }
+
+    @Test public void resolvedFieldSetNeedsValue() throws Exception {
+        ResolvedCheck set = ResolvedCheck.fieldSet(new StaticWhitelist(), EnumeratingWhitelistTest.Fancy.class.getField("myF"));
+        assertFalse(set.permits(new EnumeratingWhitelistTest.Fancy(), 6));
+        assertThrows(IllegalArgumentException.class, () -> set.permits(new EnumeratingWhitelistTest.Fancy()));
+    }
+
+    private static class Counting extends AbstractWhitelist {
+        private final boolean cacheable;
+        int checks;
+        Counting(boolean cacheable) {
+            this.cacheable = cacheable;
+        }
+        @Override public boolean isCacheable() {
+            return cacheable;
+        }
+        @Override public boolean permitsMethod(@NonNull Method method, @NonNull Object receiver, @NonNull Object[] args) {
+            checks++;
+            return false;
+        }
+    }
+
     /**
      * Test concurrent modification of delegates when initializing a ProxyWhitelist. This may cause concurrent threads 
      * to enter an infinite loop when using a {@link java.util.WeakHashMap} to hold the delegates as it is not 
@@ -26,6 +26,8 @@ package org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists;
 
 import groovy.lang.GroovyObject;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -37,6 +39,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
@@ -59,6 +62,62 @@ public class StaticWhitelistTest {
         assertTrue(StaticWhitelist.rejectMethod(GroovyObject.class.getMethod("invokeMethod", String.class, Object.class)).isDangerous());
     }
 
+    @Test public void permanentlyBlacklisted() throws Exception {
+        assertTrue(StaticWhitelist.isPermanentlyBlacklistedMethod(Runtime.class.getMethod("exit", int.class)));
+        assertTrue(StaticWhitelist.isPermanentlyBlacklistedMethod(Runtime.class.getMethod("halt", int.class)));
+        assertFalse(StaticWhitelist.isPermanentlyBlacklistedMethod(Runtime.class.getMethod("gc")));
+        assertTrue(StaticWhitelist.isPermanentlyBlacklistedStaticMethod(System.class.getMethod("exit", int.class)));
+        assertFalse(StaticWhitelist.isPermanentlyBlacklistedStaticMethod(System.class.getMethod("currentTimeMillis")));
+        assertFalse(StaticWhitelist.isPermanentlyBlacklistedMethod(String.class.getMethod("trim")));
+        assertFalse(StaticWhitelist.isPermanentlyBlacklistedConstructor(ArrayList.class.getConstructor()));
+    }
+
+    @Test public void sharedNames() throws Exception {
+        String[] receivers = {"java.lang.String", "java.lang.Object", "java.util.List", "java.util.Map", "hudson.model.Run"};
+        String[] argumentTypes = {"", " java.lang.Object", " java.lang.String int", " int int java.lang.Object[]"};
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Built separately so that equal strings are not already the same instance.
+            lines.add(new StringBuilder("method ").append(receivers[i % receivers.length]).append(" m").append(i).append(argumentTypes[i % argumentTypes.length]).toString());
+        }
+        StaticWhitelist a = new StaticWhitelist(lines.subList(0, 10_000));
+        StaticWhitelist b = new StaticWhitelist(lines.subList(10_000, 20_000));
+        Set<Object> distinctReceivers = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Object> distinctArgumentTypes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (StaticWhitelist w : List.of(a, b)) {
+            assertEquals(10_000, w.methodSignatures.size());
+            for (MethodSignature s : w.methodSignatures) {
+                distinctReceivers.add(s.receiverType);
+                distinctArgumentTypes.add(s.argumentTypes);
+            }
+        }
+        assertEquals(receivers.length, distinctReceivers.size());
+        assertEquals(argumentTypes.length, distinctArgumentTypes.size());
+    }
+
+    @Test public void precompiled() throws Exception {
+        byte[] text;
+        try (InputStream is = StaticWhitelist.class.getResourceAsStream("generic-whitelist")) {
+            text = is.readAllBytes();
+        }
+        ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+        PrecompiledWhitelist.compile(text, compiled);
+        StaticWhitelist loaded = new StaticWhitelist();
+        assertTrue(PrecompiledWhitelist.load(text, new ByteArrayInputStream(compiled.toByteArray()), loaded));
+        StaticWhitelist parsed = new StaticWhitelist(new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.UTF_8));
+        assertEquals(parsed.methodSignatures, loaded.methodSignatures);
+        assertEquals(parsed.newSignatures, loaded.newSignatures);
+        assertEquals(parsed.staticMethodSignatures, loaded.staticMethodSignatures);
+        assertEquals(parsed.fieldSignatures, loaded.fieldSignatures);
+        assertEquals(parsed.staticFieldSignatures, loaded.staticFieldSignatures);
+
+        byte[] edited = Arrays.copyOf(text, text.length + 1);
+        edited[text.length] = '\n';
+        StaticWhitelist stale = new StaticWhitelist();
+        assertFalse("text changed since compilation", PrecompiledWhitelist.load(edited, new ByteArrayInputStream(compiled.toByteArray()), stale));
+        assertTrue(stale.methodSignatures.isEmpty());
+    }
+
     static void sanity(URL definition) throws Exception {
         StaticWhitelist wl = StaticWhitelist.from(definition);
         List<EnumeratingWhitelist.Signature> sigs = new ArrayList<>();
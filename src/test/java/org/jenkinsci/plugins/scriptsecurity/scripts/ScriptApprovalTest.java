@@ -27,6 +27,7 @@ package org.jenkinsci.plugins.scriptsecurity.scripts;
 import org.htmlunit.html.HtmlPage;
 import org.htmlunit.html.HtmlTextArea;
 
+import hudson.ExtensionList;
 import hudson.model.Descriptor;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
@@ -41,9 +42,12 @@ import hudson.util.FormValidation;
 import jenkins.model.Jenkins;
 import org.hamcrest.Matchers;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.RejectedAccessException;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.ResolvedCheck;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.Whitelist;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.groovy.SecureGroovyScript;
 import org.jenkinsci.plugins.scriptsecurity.sandbox.groovy.TestGroovyRecorder;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.EnumeratingWhitelist;
+import org.jenkinsci.plugins.scriptsecurity.sandbox.whitelists.StaticWhitelist;
 import org.jenkinsci.plugins.scriptsecurity.scripts.languages.GroovyLanguage;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import org.junit.Rule;
@@ -57,10 +61,17 @@ import org.xml.sax.SAXException;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import com.sun.net.httpserver.HttpServer;
@@ -71,6 +82,8 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -100,6 +113,62 @@ public class ScriptApprovalTest extends AbstractApprovalTest<ScriptApprovalTest.
             hasItemInArray("Malformed signature entry in scriptApproval.xml: ' new java.lang.Exception java.lang.String'"));
     }
 
+    @Test public void allWhitelistsReloadedOnExtensionChange() throws Exception {
+        Method get = Jenkins.class.getMethod("get");
+        Whitelist all = Whitelist.all();
+        assertSame(all, Whitelist.all());
+        assertFalse(all.permitsStaticMethod(get, new Object[0]));
+        ExtensionList.lookup(Whitelist.class).add(new StaticWhitelist("staticMethod jenkins.model.Jenkins get"));
+        Whitelist reloaded = Whitelist.all();
+        assertNotSame(all, reloaded);
+        assertTrue(reloaded.permitsStaticMethod(get, new Object[0]));
+        assertSame(reloaded, Whitelist.all());
+    }
+
+    @Test public void enumeratingExtensionChangedAfterAggregation() throws Exception {
+        ChangingWhitelist changing = new ChangingWhitelist();
+        ExtensionList.lookup(Whitelist.class).add(changing);
+        Whitelist all = Whitelist.all();
+        changing.methods.add(new EnumeratingWhitelist.MethodSignature(Target.class, "go"));
+        assertSame(all, Whitelist.all());
+        assertTrue("signature lists are not snapshotted when aggregating", all.permitsMethod(Target.class.getMethod("go"), new Target(), new Object[0]));
+    }
+
+    public static final class Target {
+        public void go() {}
+    }
+
+    private static final class ChangingWhitelist extends EnumeratingWhitelist {
+        final List<MethodSignature> methods = new CopyOnWriteArrayList<>();
+        @Override protected List<MethodSignature> methodSignatures() {
+            return methods;
+        }
+        @Override protected List<NewSignature> newSignatures() {
+            return List.of();
+        }
+        @Override protected List<MethodSignature> staticMethodSignatures() {
+            return List.of();
+        }
+        @Override protected List<FieldSignature> fieldSignatures() {
+            return List.of();
+        }
+        @Override protected List<FieldSignature> staticFieldSignatures() {
+            return List.of();
+        }
+    }
+
+    @Test public void allWhitelistsCacheable() throws Exception {
+        Method trim = String.class.getMethod("trim");
+        assertTrue("stock, @Whitelisted and approved verdicts do not depend on the user", Whitelist.all().isCacheable(String.class));
+        ResolvedCheck check = ResolvedCheck.method(null, trim);
+        assertTrue(check.permits("x"));
+        assertTrue(check.permits("y"));
+        ScriptApproval.get().aclApproveSignature("method java.lang.String strip");
+        assertFalse("ACL-approved signatures depend on the user", Whitelist.all().isCacheable(String.class));
+        assertTrue(Whitelist.all().isCacheable(Integer.class));
+        assertTrue(check.permits("x"));
+    }
+
     @Test @LocalData("dangerousApproved") public void dangerousApprovedSignatures() {
         String[] dangerousSignatures = ScriptApproval.get().getDangerousApprovedSignatures();
         assertEquals(1, dangerousSignatures.length);
@@ -155,6 +224,23 @@ public class ScriptApprovalTest extends AbstractApprovalTest<ScriptApprovalTest.
         }
     }
 
+    @Test public void clearDangerousInvalidatesOnce() throws Exception {
+        ScriptApproval sa = ScriptApproval.get();
+        sa.approveSignature(WHITELISTED_SIGNATURE);
+        sa.approveSignature(DANGEROUS_SIGNATURE);
+        sa.approveSignature("staticMethod hudson.model.User getAll");
+        sa.aclApproveSignature("new java.io.File java.lang.String");
+        assertEquals(2, sa.getDangerousApprovedSignatures().length);
+        long generation = Whitelist.generation();
+        sa.clearDangerousApprovedSignatures();
+        assertEquals(0, sa.getDangerousApprovedSignatures().length);
+        assertEquals(1, sa.getApprovedSignatures().length);
+        assertEquals(0, sa.getAclApprovedSignatures().length);
+        assertEquals("cached verdicts discarded once for all removals", generation + 1, Whitelist.generation());
+        assertTrue(Whitelist.all().permitsMethod(String.class.getMethod("trim"), "x", new Object[0]));
+        assertFalse(Whitelist.all().permitsStaticMethod(User.class.getMethod("getAll"), new Object[0]));
+    }
+
     @Test public void clearMethodsLifeCycle() throws Exception {
         ScriptApproval sa = ScriptApproval.get();
         assertEquals(0, sa.getApprovedSignatures().length);
@@ -181,6 +267,36 @@ public class ScriptApprovalTest extends AbstractApprovalTest<ScriptApprovalTest.
         assertEquals(0, sa.getDangerousApprovedSignatures().length);
     }
 
+    @Test(timeout = 60_000) public void concurrentPermitsDuringApproval() throws Exception {
+        ScriptApproval sa = ScriptApproval.get();
+        Whitelist approved = ExtensionList.lookupSingleton(ScriptApproval.ApprovedWhitelist.class);
+        Method trim = String.class.getMethod("trim");
+        assertFalse(approved.permitsMethod(trim, "x", new Object[0]));
+        int threads = 64;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch started = new CountDownLatch(threads);
+            List<Future<Long>> checkers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                checkers.add(pool.submit(() -> {
+                    started.countDown();
+                    long checks = 0;
+                    while (!approved.permitsMethod(trim, "x", new Object[0])) {
+                        checks++;
+                    }
+                    return checks;
+                }));
+            }
+            started.await();
+            sa.approveSignature(WHITELISTED_SIGNATURE);
+            for (Future<Long> checker : checkers) {
+                checker.get(); // each reader must observe the new approval without any further reconfiguration
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Issue({"JENKINS-57563", "JENKINS-62708"})
     @LocalData // Just a scriptApproval.xml that whitelists 'staticMethod jenkins.model.Jenkins getInstance' and a script printing all labels
     @Test